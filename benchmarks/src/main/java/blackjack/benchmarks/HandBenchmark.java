@@ -0,0 +1,65 @@
+package blackjack.benchmarks;
+
+import blackjack.cards.Card;
+import blackjack.cards.Hand;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scoring of typical hands: hard and soft totals, several aces and bust.
+ * @author yevhen bilous
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HandBenchmark {
+
+    @Param({"TEN SIX", "ACE SIX", "ACE ACE NINE", "TWO THREE FOUR FIVE", "KING QUEEN FIVE"})
+    public String cards;
+
+    private Hand hand;
+
+    @Setup
+    public void createHand() {
+        String[] names = cards.split(" ");
+        hand = new Hand();
+        for (String name : names) {
+            hand.receiveCard(Card.valueOf(name));
+        }
+    }
+
+    @Benchmark
+    public List<Integer> getCardsScores() {
+        return hand.getCardsScores();
+    }
+
+    @Benchmark
+    public int getMaxScore() {
+        return hand.getMaxScore();
+    }
+
+    @Benchmark
+    public boolean reachesDealerHit() {
+        return hand.reachesDealerHit();
+    }
+
+    @Benchmark
+    public String getCardsScoresString() {
+        return hand.getCardsScoresString();
+    }
+}
@@ -0,0 +1,49 @@
+package blackjack.benchmarks;
+
+import blackjack.cards.ArrayShoe;
+import blackjack.cards.GameResult;
+import blackjack.simulation.RoundSimulator;
+import blackjack.simulation.SimulationResult;
+import blackjack.simulation.ThresholdStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full single-player round: dealing, player's decisions, dealer's cards and settlement.
+ * With GC profiler, "gc.alloc.rate.norm" of this benchmark is amount of bytes allocated per round.
+ * @author yevhen bilous
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RoundBenchmark {
+
+    private static final int BET = 10;
+
+    private RoundSimulator simulator;
+    private SimulationResult result;
+
+    @Setup
+    public void createSimulator() {
+        simulator = new RoundSimulator(new ArrayShoe(6, true), new ThresholdStrategy());
+        result = new SimulationResult(BET);
+    }
+
+    @Benchmark
+    public GameResult playRound() {
+        return simulator.playRound(BET, result);
+    }
+}
@@ -0,0 +1,94 @@
+package blackjack.benchmarks;
+
+import blackjack.cards.ArrayShoe;
+import blackjack.cards.Card;
+import blackjack.cards.Deck;
+import blackjack.cards.Shoe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Six-deck shoe construction, shuffle and full drain, for list-based {@link Shoe}
+ * and array-based {@link ArrayShoe}.
+ * @author yevhen bilous
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShoeBenchmark {
+
+    private Shoe listShoe;
+    private ArrayShoe arrayShoe;
+    private Shoe listShoeToDrain;
+
+    @Setup(Level.Trial)
+    public void createShoes() {
+        listShoe = new Shoe(6, true);
+        arrayShoe = new ArrayShoe(6, true);
+    }
+
+    /**
+     * List-based shoe loses its cards while draining, so new one is built before each invocation.
+     */
+    @Setup(Level.Invocation)
+    public void createShoeToDrain() {
+        listShoeToDrain = new Shoe(6, true);
+    }
+
+    @Benchmark
+    public Deck constructListShoe() {
+        return new Shoe(6, true);
+    }
+
+    @Benchmark
+    public Deck constructArrayShoe() {
+        return new ArrayShoe(6, true);
+    }
+
+    @Benchmark
+    public Deck shuffleListShoe() {
+        listShoe.shuffle();
+        return listShoe;
+    }
+
+    @Benchmark
+    public Deck shuffleArrayShoe() {
+        arrayShoe.reset();
+        arrayShoe.shuffle();
+        return arrayShoe;
+    }
+
+    @Benchmark
+    public void drainListShoe(Blackhole blackhole) {
+        drain(listShoeToDrain, blackhole);
+    }
+
+    @Benchmark
+    public void drainArrayShoe(Blackhole blackhole) {
+        arrayShoe.reset();
+        drain(arrayShoe, blackhole);
+    }
+
+    private static void drain(Deck shoe, Blackhole blackhole) {
+        Card card = shoe.retrieveUpperCard();
+        while (card != null) {
+            blackhole.consume(card);
+            card = shoe.retrieveUpperCard();
+        }
+    }
+}
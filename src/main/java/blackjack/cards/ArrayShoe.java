@@ -0,0 +1,282 @@
+package blackjack.cards;
+
+import java.util.SplittableRandom;
+
+/**
+ * Shoe, which holds its cards as primitive array of card codes (ordinals of {@link Card}) and
+ * a cursor, pointing to the next card to deal. Retrieving a card just moves the cursor, so it takes
+ * constant time and allocates nothing. Shuffle is done in place with Fisher-Yates algorithm.
+ * Dealt cards stay in array behind the cursor, so shoe could be refilled by {@link ArrayShoe#reset()}
+ * without rebuilding it.
+ * Shoe has a cut card: after it was reached, {@link ArrayShoe#needsReshuffle()} returns true and shoe
+ * should be reshuffled between rounds by {@link ArrayShoe#reshuffle()}. Remaining cards of each rank and
+ * Hi-Lo running count are updated on every dealt card, so they are available in constant time.
+ * Full reshuffle always starts from ordered shoe, so shoe state is completely described by shuffle seed
+ * and amount of dealt cards, and could be restored by {@link ArrayShoe#restore(long, int)}.
+ * Shoe isn't thread-safe: each table of multiplayer server owns its shoe and deals it only from its
+ * event loop's thread, so cards are drawn without any locks.
+ * @author yevhen bilous
+ */
+public class ArrayShoe extends Deck {
+
+    protected static final Card[] CARDS = Card.values();
+    public static final int DECK_SIZE = 4 * CARDS.length;
+    public static final double DEFAULT_PENETRATION = 0.75;
+
+    /**
+     * Hi-Lo counting values of cards, indexed by card ordinal: low cards (2-6) count as +1,
+     * tens, figures and aces as -1, other cards as 0.
+     */
+    private static final int[] HI_LO_VALUES = new int[CARDS.length];
+
+    static {
+        for (Card card : CARDS) {
+            switch (card) {
+                case TWO:
+                case THREE:
+                case FOUR:
+                case FIVE:
+                case SIX:
+                    HI_LO_VALUES[card.ordinal()] = 1;
+                    break;
+                case SEVEN:
+                case EIGHT:
+                case NINE:
+                    HI_LO_VALUES[card.ordinal()] = 0;
+                    break;
+                default:
+                    HI_LO_VALUES[card.ordinal()] = -1;
+            }
+        }
+    }
+
+    private final int decksCount;
+    private final int cutCardPosition;
+    protected final byte[] codes;
+    protected int position = 0;
+    protected final int[] remainingByRank = new int[CARDS.length];
+    protected int runningCount = 0;
+
+    /**
+     * Creates shoe with specified amount of decks and cut card position.
+     *
+     * @param decksCount  number of decks in shoe
+     * @param penetration part of shoe, which is dealt before cut card is reached; must be in (0, 1]
+     *                    and leave enough cards to finish a round
+     * @param shuffle     shuffle or not to shuffle initial card set
+     */
+    public ArrayShoe(int decksCount, double penetration, boolean shuffle) {
+        this(decksCount, penetration, ThreadLocalShuffleRandom.INSTANCE, shuffle);
+    }
+
+    /**
+     * Creates shoe with specified amount of decks, cut card position and source of shuffle seeds.
+     *
+     * @param decksCount    number of decks in shoe
+     * @param penetration   part of shoe, which is dealt before cut card is reached; must be in (0, 1]
+     *                      and leave enough cards to finish a round
+     * @param shuffleRandom source of shuffle seeds
+     * @param shuffle       shuffle or not to shuffle initial card set
+     */
+    public ArrayShoe(int decksCount, double penetration, ShuffleRandom shuffleRandom, boolean shuffle) {
+        super(null);
+        if (penetration <= 0 || penetration > 1) {
+            throw new IllegalArgumentException("Penetration must be in (0, 1]: " + penetration);
+        }
+        this.decksCount = decksCount;
+        codes = new byte[decksCount * DECK_SIZE];
+        cutCardPosition = (int) (codes.length * penetration);
+        this.shuffleRandom = shuffleRandom;
+        order();
+        resetCounts();
+        if (shuffle) shuffle();
+    }
+
+    /**
+     * Creates shoe with specified amount of decks and cut card placed after
+     * {@link ArrayShoe#DEFAULT_PENETRATION} of cards.
+     *
+     * @param decksCount number of decks in shoe
+     * @param shuffle    shuffle or not to shuffle initial card set
+     */
+    public ArrayShoe(int decksCount, boolean shuffle) {
+        this(decksCount, DEFAULT_PENETRATION, shuffle);
+    }
+
+    /**
+     * Basic constructor creates shoe which contains 6 decks (standard decision in casino) and shuffles cards.
+     */
+    public ArrayShoe() {
+        this(6, true);
+    }
+
+    /**
+     * Shuffles cards, which were not dealt yet. Dealt cards are not touched.
+     *
+     * @param seed shuffle seed
+     */
+    @Override
+    public void shuffle(long seed) {
+        shuffleSeed = seed;
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int index = codes.length - 1; index > position; index--) {
+            int swapIndex = position + random.nextInt(index - position + 1);
+            byte code = codes[index];
+            codes[index] = codes[swapIndex];
+            codes[swapIndex] = code;
+        }
+    }
+
+    /**
+     * Retrieves next card from shoe.
+     *
+     * @return next card in shoe, or null if all cards were dealt
+     */
+    @Override
+    public Card retrieveUpperCard() {
+        if (position == codes.length) return null;
+        byte code = codes[position++];
+        countCard(code);
+        return CARDS[code];
+    }
+
+    /**
+     * Returns all dealt cards back into shoe. Cards order is kept, so shoe usually
+     * must be shuffled after this call.
+     */
+    public void reset() {
+        position = 0;
+        resetCounts();
+    }
+
+    /**
+     * Returns all dealt cards back into shoe and shuffles it, using next seed of
+     * {@link ArrayShoe#shuffleRandom}.
+     */
+    public void reshuffle() {
+        reshuffle(shuffleRandom.nextSeed());
+    }
+
+    /**
+     * Returns all dealt cards back into shoe, puts them in initial order and shuffles.
+     * The same seed always gives the same cards order.
+     *
+     * @param seed shuffle seed
+     */
+    public void reshuffle(long seed) {
+        reset();
+        order();
+        shuffle(seed);
+    }
+
+    /**
+     * Restores shoe state, which was recorded by {@link ArrayShoe#getShuffleSeed()} and
+     * {@link ArrayShoe#getDealtCount()}: reshuffles shoe with recorded seed and deals specified amount of cards.
+     * Shoe must have the same amount of decks as recorded one.
+     *
+     * @param seed       recorded shuffle seed
+     * @param dealtCount recorded amount of dealt cards
+     */
+    public void restore(long seed, int dealtCount) {
+        reshuffle(seed);
+        for (int index = 0; index < dealtCount; index++) {
+            retrieveUpperCard();
+        }
+    }
+
+    /**
+     * Checks if cut card was reached. Should be checked between rounds, so round is never
+     * interrupted by reshuffle.
+     *
+     * @return true, if shoe must be reshuffled before next round
+     */
+    public boolean needsReshuffle() {
+        return position >= cutCardPosition;
+    }
+
+    /**
+     * @param card card rank
+     * @return amount of cards of specified rank, which were not dealt yet
+     */
+    public int getRemaining(Card card) {
+        return remainingByRank[card.ordinal()];
+    }
+
+    /**
+     * @return Hi-Lo running count of dealt cards
+     */
+    public int getRunningCount() {
+        return runningCount;
+    }
+
+    /**
+     * @return running count divided by amount of decks, which remain in shoe
+     */
+    public double getTrueCount() {
+        int remaining = size();
+        if (remaining == 0) return 0;
+        return runningCount * (double) DECK_SIZE / remaining;
+    }
+
+    public int getCutCardPosition() {
+        return cutCardPosition;
+    }
+
+    /**
+     * Updates remaining cards of rank and running count for dealt card.
+     *
+     * @param code dealt card's code
+     */
+    protected void countCard(int code) {
+        remainingByRank[code]--;
+        runningCount += HI_LO_VALUES[code];
+    }
+
+    /**
+     * Puts all cards in initial order: each deck sorted by card ordinals.
+     */
+    private void order() {
+        int index = 0;
+        for (int deckInd = 0; deckInd < decksCount; deckInd++) {
+            for (int suitInd = 0; suitInd < 4; suitInd++) {
+                for (int cardOrdinalInd = 0; cardOrdinalInd < CARDS.length; cardOrdinalInd++) {
+                    codes[index++] = (byte) cardOrdinalInd;
+                }
+            }
+        }
+    }
+
+    private void resetCounts() {
+        for (int rank = 0; rank < remainingByRank.length; rank++) {
+            remainingByRank[rank] = 4 * decksCount;
+        }
+        runningCount = 0;
+    }
+
+    @Override
+    public int size() {
+        return codes.length - position;
+    }
+
+    /**
+     * @return amount of cards, which were dealt since last {@link ArrayShoe#reset()}
+     */
+    public int getDealtCount() {
+        return position;
+    }
+
+    public int getDecksCount() {
+        return decksCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int index = position; index < codes.length; index++) {
+            result.append(CARDS[codes[index]]);
+            result.append(" ");
+        }
+        result.append('\n');
+        return result.toString();
+    }
+}
@@ -3,16 +3,20 @@ package blackjack.cards;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Represents standard 52-card deck. Doesn't have internal shuffle mechanism, so it must
- * be done by {@link Deck#shuffle()} manually
+ * be done by {@link Deck#shuffle()} manually. Each shuffle is driven by one seed, taken from pluggable
+ * {@link ShuffleRandom}; last used seed is kept, so shuffle could be repeated by {@link Deck#shuffle(long)}.
  * @author yevhen bilous
  */
 
 public class Deck {
 
     protected List<Card> cards;
+    protected ShuffleRandom shuffleRandom = ThreadLocalShuffleRandom.INSTANCE;
+    protected long shuffleSeed = 0;
 
     /**
      * Basic constructor creates standard 52-card deck. Because of using {@link Card}, there is no difference
@@ -27,6 +31,16 @@ public class Deck {
         }
     }
 
+    /**
+     * Constructor for subclasses, which keep cards in their own storage instead of {@link Deck#cards}.
+     * Such subclasses must override every method that works with cards list.
+     *
+     * @param cards initial cards list, may be null if it is not used by subclass
+     */
+    protected Deck(List<Card> cards) {
+        this.cards = cards;
+    }
+
     public String toString() {
         StringBuilder result = new StringBuilder();
         for (Card card : cards) {
@@ -38,10 +52,36 @@ public class Deck {
     }
 
     /**
-     * Shuffles cards in deck.
+     * Shuffles cards in deck, using next seed of {@link Deck#shuffleRandom}.
      */
     public void shuffle() {
-        Collections.shuffle(cards);
+        shuffle(shuffleRandom.nextSeed());
+    }
+
+    /**
+     * Shuffles cards in deck. The same seed with the same cards order always gives the same result.
+     *
+     * @param seed shuffle seed
+     */
+    public void shuffle(long seed) {
+        shuffleSeed = seed;
+        Collections.shuffle(cards, new Random(seed));
+    }
+
+    /**
+     * Sets source of seeds for next shuffles.
+     *
+     * @param shuffleRandom source of shuffle seeds
+     */
+    public void setShuffleRandom(ShuffleRandom shuffleRandom) {
+        this.shuffleRandom = shuffleRandom;
+    }
+
+    /**
+     * @return seed of the last shuffle
+     */
+    public long getShuffleSeed() {
+        return shuffleSeed;
     }
 
     /**
@@ -0,0 +1,64 @@
+package blackjack.cards;
+
+/**
+ * Represents game round result for one player's box and settles it: each result knows
+ * how much money player gets or loses for his bet.
+ * @author yevhen bilous
+ */
+public enum GameResult {
+    PLAYER_BLACKJACK("Blackjack! Player wins."),
+    PLAYER_WINS("Player wins."),
+    DEALER_WINS("Dealer wins."),
+    STAY("Stay.");
+
+    private final String description;
+
+    GameResult(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Determines result of the round, when player and dealer are done with their cards.
+     * Blackjack is checked first, because in this case dealer doesn't need to take more cards.
+     *
+     * @param playerHand player's hand
+     * @param dealerHand dealer's hand
+     * @return round result from player's point of view
+     */
+    public static GameResult resolve(Hand playerHand, Hand dealerHand) {
+        if (playerHand.isBlackjack()) return PLAYER_BLACKJACK;
+        if (playerHand.isBusted()) return DEALER_WINS;
+        if (dealerHand.isBusted()) return PLAYER_WINS;
+        int playerScore = playerHand.getMaxScore();
+        int dealerScore = dealerHand.getMaxScore();
+        if (playerScore == dealerScore) return STAY;
+        return playerScore > dealerScore ? PLAYER_WINS : DEALER_WINS;
+    }
+
+    /**
+     * Calculates player's net for specified bet: blackjack pays 3 to 2, win pays 1 to 1,
+     * stay returns bet to player.
+     *
+     * @param bet player's bet (already doubled, if player chose DOUBLE)
+     * @return money amount, which must be added to player's money
+     */
+    public int getNet(int bet) {
+        switch (this) {
+            case PLAYER_BLACKJACK:
+                return (int) Math.round(1.5 * bet);
+            case PLAYER_WINS:
+                return bet;
+            case DEALER_WINS:
+                return -bet;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @return text, which is shown to player at the end of round
+     */
+    public String getDescription() {
+        return description;
+    }
+}
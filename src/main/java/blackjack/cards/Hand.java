@@ -1,7 +1,6 @@
 package blackjack.cards;
 
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -18,44 +17,45 @@ public class Hand {
 
     protected List<Card> cards;
 
+    // running scores, updated on each received card
+    protected int hardScore = 0;
+    protected int acesCount = 0;
+
     public Hand(Card... initialCards) {
-        cards = new LinkedList<Card>();
-        cards.addAll(Arrays.asList(initialCards));
+        cards = new ArrayList<Card>(8);
+        for (Card card : initialCards) {
+            receiveCard(card);
+        }
     }
 
     public void receiveCard(Card card) {
         cards.add(card);
+        hardScore += cardValue(card);
+        if (card == Card.ACE) acesCount++;
     }
 
     public void retrieveCardFromDeck(Deck deck) {
-        cards.add(deck.retrieveUpperCard());
+        receiveCard(deck.retrieveUpperCard());
     }
 
     public void retrieveCardFromDeck(Deck deck, int count) {
         for(int times = 0; times<count; times++) {
-            cards.add(deck.retrieveUpperCard());
+            receiveCard(deck.retrieveUpperCard());
         }
     }
 
     public boolean isBlackjack() {
-        return cards.size() == 2 && cards.contains(Card.ACE) && cards.contains(Card.TEN);
+        return cards.size() == 2 && acesCount == 1 && hardScore == 11;
     }
 
     /**
      * Determines if dealer hit it's upper scores limit. In most games limit is set to 17,
-     * in class it's hold by {@link Hand#MAX_SCORES} final variable. This method doesn't return
+     * in class it's hold by {@link Hand#UPPER_HIT} final variable. This method doesn't return
      * true if dealer reaches soft hit in hand (which means that aces are in fact counted as 1 score).
      * @return true, if dealer reaches hard limit, and false otherwise
      */
     public boolean reachesDealerHit() {
-        List<Integer> cardsScores = getCardsScores();
-        if(cardsScores.size()==1) {
-            if(cardsScores.get(0)<UPPER_HIT) return false;
-        }
-        else {
-            if(cardsScores.get(0)<UPPER_HIT || cardsScores.get(1)<UPPER_HIT) return false;
-        }
-        return true;
+        return hardScore >= UPPER_HIT;
     }
 
     /**
@@ -64,30 +64,15 @@ public class Hand {
      * list instead of just one integer value. If there is one ace, it's counted as 1 and 11; if there
      * are several aces, firstly they all are counted as 1, then only one as 11 - if scores are less than 21,
      * and all as 11 - if scores are bigger than 21.
+     * Kept for compatibility: game logic uses {@link Hand#getHardScore()} and {@link Hand#getMaxScore()},
+     * which don't allocate anything.
      * @return one-element list if there are no aces in hand; two-element list otherwise
      */
     public List<Integer> getCardsScores() {
         List<Integer> sums = new LinkedList<Integer>();
-        int noAcesSum = 0;
-        int acesCount = 0;
-        for (Card card : cards) {
-            if(card!=Card.ACE) noAcesSum += cardValue(card);
-            else acesCount++;
-        }
-        if (acesCount == 0) {
-            sums.add(noAcesSum);
-            return sums;
-        } else {
-            int acesAreOnesSum = noAcesSum + acesCount;
-            sums.add(acesAreOnesSum);
-            int bigAceSum = acesAreOnesSum;
-            if (acesAreOnesSum + 10 <= MAX_SCORES)
-                bigAceSum += 10;
-            else
-                bigAceSum += acesCount * 10;
-            sums.add(bigAceSum);
-            return sums;
-        }
+        sums.add(hardScore);
+        if (acesCount > 0) sums.add(getBigAceScore());
+        return sums;
     }
 
     /**
@@ -95,9 +80,8 @@ public class Hand {
      * @return string, which contains one or two values of hand's scores
      */
     public String getCardsScoresString() {
-        List<Integer> cardsScores = getCardsScores();
-        if(cardsScores.size()==1) return cardsScores.get(0).toString();
-        else return cardsScores.get(0) + "/" + cardsScores.get(1);
+        if (acesCount == 0) return String.valueOf(hardScore);
+        else return hardScore + "/" + getBigAceScore();
     }
 
     /**
@@ -116,6 +100,8 @@ public class Hand {
      */
     public void clear() {
         cards.clear();
+        hardScore = 0;
+        acesCount = 0;
     }
 
     /**
@@ -124,7 +110,7 @@ public class Hand {
      * @return true, if hand's scores are bigger than 21 (if there are aces, they are counted as 1)
      */
     public boolean isBusted() {
-        return (getCardsScores().get(0)>21);
+        return hardScore > MAX_SCORES;
     }
 
     /**
@@ -132,12 +118,47 @@ public class Hand {
      * @return hand's scores, if there any aces in hand - combination with maximum value under limit
      */
     public int getMaxScore() {
-        List<Integer> scores = getCardsScores();
-        if(scores.size()==1) return scores.get(0);
-        else {
-            if(scores.get(1)>21) return scores.get(0);
-            else return Math.max(scores.get(0), scores.get(0));
-        }
+        if (isSoft()) return hardScore + 10;
+        else return hardScore;
+    }
+
+    /**
+     * @return hand's scores, where all aces are counted as 1
+     */
+    public int getHardScore() {
+        return hardScore;
+    }
+
+    /**
+     * @return true, if one of aces in hand could be counted as 11 without bust
+     */
+    public boolean isSoft() {
+        return acesCount > 0 && hardScore + 10 <= MAX_SCORES;
+    }
+
+    public int getAcesCount() {
+        return acesCount;
+    }
+
+    public int getCardsCount() {
+        return cards.size();
+    }
+
+    /**
+     * @param index card's index, in order of receiving
+     * @return card from hand
+     */
+    public Card getCard(int index) {
+        return cards.get(index);
+    }
+
+    /**
+     * Second value of {@link Hand#getCardsScores()}: one ace is counted as 11 if it doesn't
+     * lead to bust, all aces are counted as 11 otherwise.
+     */
+    private int getBigAceScore() {
+        if (hardScore + 10 <= MAX_SCORES) return hardScore + 10;
+        else return hardScore + acesCount * 10;
     }
 
     /**
@@ -0,0 +1,39 @@
+package blackjack.cards;
+
+/**
+ * Actions, which player can take on his turn. Each action is typed by player as one letter:
+ * h for HIT, s for STAND and d for DOUBLE.
+ * @author yevhen bilous
+ */
+public enum PlayerDecision {
+    HIT('h'), STAND('s'), DOUBLE('d');
+
+    private final char letter;
+
+    PlayerDecision(char letter) {
+        this.letter = letter;
+    }
+
+    /**
+     * Parses decision, typed by player. Letter case doesn't matter.
+     *
+     * @param letter first letter of player's message
+     * @return decision, or null if letter doesn't represent any decision
+     */
+    public static PlayerDecision fromLetter(char letter) {
+        switch (Character.toLowerCase(letter)) {
+            case 'h':
+                return HIT;
+            case 's':
+                return STAND;
+            case 'd':
+                return DOUBLE;
+            default:
+                return null;
+        }
+    }
+
+    public char getLetter() {
+        return letter;
+    }
+}
@@ -0,0 +1,17 @@
+package blackjack.cards;
+
+import java.security.SecureRandom;
+
+/**
+ * Source of shuffle seeds, backed by {@link SecureRandom}, so next shuffle couldn't be predicted
+ * from previous ones. Thread-safe; intended for shoes, which are used in real games.
+ * @author yevhen bilous
+ */
+public class SecureShuffleRandom implements ShuffleRandom {
+
+    private final SecureRandom random = new SecureRandom();
+
+    public long nextSeed() {
+        return random.nextLong();
+    }
+}
@@ -0,0 +1,164 @@
+package blackjack.cards;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Supplies shuffled shoes, which are prepared in background thread, so game thread doesn't need
+ * to wait for reshuffle when cut card is reached. Shuffled shoes are kept in bounded pool; used shoes,
+ * returned by game threads, are reshuffled and put back into pool. If pool is empty when shoe is requested,
+ * shoe is created and shuffled in caller's thread - such requests are counted as misses.
+ * @author yevhen bilous
+ */
+public class ShoePool implements Runnable {
+
+    public static final int DEFAULT_DEPTH = 4;
+
+    private final int decksCount;
+    private final double penetration;
+    private final ShuffleRandom shuffleRandom;
+    private final BlockingQueue<ArrayShoe> readyShoes;
+    private final BlockingQueue<ArrayShoe> usedShoes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile boolean running = false;
+    private Thread shufflerThread = null;
+
+    /**
+     * Creates pool. Pool is empty until {@link ShoePool#start()} is called.
+     *
+     * @param decksCount  number of decks in each shoe
+     * @param penetration cut card position of each shoe, see {@link ArrayShoe}
+     * @param depth       maximal amount of shuffled shoes kept in pool
+     */
+    public ShoePool(int decksCount, double penetration, int depth) {
+        this(decksCount, penetration, depth, ThreadLocalShuffleRandom.INSTANCE);
+    }
+
+    /**
+     * Creates pool, which shuffles shoes with seeds from specified source. Pool is empty
+     * until {@link ShoePool#start()} is called.
+     *
+     * @param decksCount    number of decks in each shoe
+     * @param penetration   cut card position of each shoe, see {@link ArrayShoe}
+     * @param depth         maximal amount of shuffled shoes kept in pool
+     * @param shuffleRandom source of shuffle seeds; shared by pool's thread and callers' threads
+     */
+    public ShoePool(int decksCount, double penetration, int depth, ShuffleRandom shuffleRandom) {
+        this.decksCount = decksCount;
+        this.penetration = penetration;
+        this.shuffleRandom = shuffleRandom;
+        readyShoes = new ArrayBlockingQueue<ArrayShoe>(depth);
+        usedShoes = new ArrayBlockingQueue<ArrayShoe>(depth);
+    }
+
+    /**
+     * Creates pool of {@link ShoePool#DEFAULT_DEPTH} six-deck shoes with default penetration.
+     */
+    public ShoePool() {
+        this(6, ArrayShoe.DEFAULT_PENETRATION, DEFAULT_DEPTH);
+    }
+
+    /**
+     * Starts background thread, which fills the pool.
+     */
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        shufflerThread = new Thread(this, "shoe-pool");
+        shufflerThread.setDaemon(true);
+        shufflerThread.start();
+    }
+
+    /**
+     * Stops background thread. Shoes, which are already in pool, are still available.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (shufflerThread != null) shufflerThread.interrupt();
+    }
+
+    /**
+     * Background loop: reshuffles returned shoes (or creates new ones, if there are no returned shoes)
+     * and puts them into pool, waiting while pool is full.
+     */
+    public void run() {
+        while (running) {
+            ArrayShoe shoe = usedShoes.poll();
+            if (shoe == null) shoe = newShoe();
+            else shoe.reshuffle();
+            try {
+                readyShoes.put(shoe);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Takes shuffled shoe from pool. Never waits for background thread: if pool is empty,
+     * new shoe is created in caller's thread.
+     *
+     * @return shuffled shoe with no dealt cards
+     */
+    public ArrayShoe acquire() {
+        ArrayShoe shoe = readyShoes.poll();
+        if (shoe != null) {
+            hits.incrementAndGet();
+            return shoe;
+        }
+        misses.incrementAndGet();
+        return newShoe();
+    }
+
+    /**
+     * Returns used shoe, so it could be reshuffled in background. Shoe is dropped if too many used
+     * shoes are waiting for reshuffle. Shoe must not be used by caller after this call.
+     *
+     * @param shoe used shoe
+     */
+    public void release(ArrayShoe shoe) {
+        usedShoes.offer(shoe);
+    }
+
+    /**
+     * Returns used shoe to pool and takes shuffled one instead.
+     *
+     * @param shoe used shoe, which reached its cut card
+     * @return shuffled shoe
+     */
+    public ArrayShoe exchange(ArrayShoe shoe) {
+        release(shoe);
+        return acquire();
+    }
+
+    /**
+     * @return amount of requests, which were served by already shuffled shoe
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return amount of requests, which had to create and shuffle shoe in caller's thread
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return amount of shuffled shoes, which are ready right now
+     */
+    public int getReadyCount() {
+        return readyShoes.size();
+    }
+
+    protected ArrayShoe newShoe() {
+        return new ArrayShoe(decksCount, penetration, shuffleRandom, true);
+    }
+
+    public String toString() {
+        return "Shoe pool: ready " + getReadyCount() + ", hits " + getHits() + ", misses " + getMisses();
+    }
+}
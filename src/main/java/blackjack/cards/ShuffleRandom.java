@@ -0,0 +1,15 @@
+package blackjack.cards;
+
+/**
+ * Source of randomness for shuffling. Each shuffle is driven by one seed, taken from this source, so
+ * shuffle could be repeated exactly by the same seed (see {@link Deck#shuffle(long)}).
+ * Implementations differ in seeds quality, reproducibility and thread-safety.
+ * @author yevhen bilous
+ */
+public interface ShuffleRandom {
+
+    /**
+     * @return seed for next shuffle
+     */
+    long nextSeed();
+}
@@ -0,0 +1,36 @@
+package blackjack.cards;
+
+import java.util.SplittableRandom;
+
+/**
+ * Reproducible source of shuffle seeds, backed by {@link SplittableRandom}: the same initial seed always
+ * gives the same sequence of shuffles. Not thread-safe - each thread should use its own instance,
+ * obtained by {@link SplittableShuffleRandom#split()}.
+ * @author yevhen bilous
+ */
+public class SplittableShuffleRandom implements ShuffleRandom {
+
+    private final SplittableRandom random;
+
+    public SplittableShuffleRandom(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    private SplittableShuffleRandom(SplittableRandom random) {
+        this.random = random;
+    }
+
+    public long nextSeed() {
+        return random.nextLong();
+    }
+
+    /**
+     * Creates new independent source, which could be used in other thread. Sequence of split
+     * sources is determined by initial seed as well.
+     *
+     * @return new source of shuffle seeds
+     */
+    public SplittableShuffleRandom split() {
+        return new SplittableShuffleRandom(random.split());
+    }
+}
@@ -0,0 +1,17 @@
+package blackjack.cards;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Source of shuffle seeds, backed by {@link ThreadLocalRandom}. Could be shared by any amount of threads
+ * without contention, but sequence of seeds is not reproducible. Default source of {@link Deck}.
+ * @author yevhen bilous
+ */
+public class ThreadLocalShuffleRandom implements ShuffleRandom {
+
+    public static final ThreadLocalShuffleRandom INSTANCE = new ThreadLocalShuffleRandom();
+
+    public long nextSeed() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+}
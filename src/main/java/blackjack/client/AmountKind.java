@@ -0,0 +1,29 @@
+package blackjack.client;
+
+/**
+ * Kinds of money amounts, which server reports to player. In text protocol amount is sent as text line
+ * built by {@link AmountKind#format(int)}; in binary protocol only kind and value are sent.
+ * @author yevhen bilous
+ */
+public enum AmountKind {
+    BET("Player's bet: ", ""),
+    MONEY("Your money: ", ""),
+    NET("Net: ", ""),
+    RESULTS("Your results: ", "$");
+
+    private final String prefix;
+    private final String suffix;
+
+    AmountKind(String prefix, String suffix) {
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    /**
+     * @param amount money amount
+     * @return text line, which is shown to player
+     */
+    public String format(int amount) {
+        return prefix + amount + suffix;
+    }
+}
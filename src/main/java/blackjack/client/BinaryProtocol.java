@@ -0,0 +1,244 @@
+package blackjack.client;
+
+import blackjack.cards.Card;
+import blackjack.cards.Hand;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Second version of client-server protocol: length-prefixed binary frames. Each frame starts with
+ * unsigned 16-bit length of the rest of frame and one-byte opcode.
+ * <p>
+ * Server's frames have {@link ClientMode} ordinal as opcode, followed by items: text line
+ * (length and UTF-8 bytes), cards (owner and card codes) or money amount (kind and 32-bit value).
+ * Client's frames have {@link BinaryProtocol#OP_CLIENT_TEXT} opcode, followed by UTF-8 text typed by player.
+ * <p>
+ * Connection always starts with text protocol; client switches both directions to binary frames
+ * by sending {@link BinaryProtocol#UPGRADE_REQUEST} as text message. Clients, which don't send it,
+ * keep using text protocol. Text frames from server start with client mode name, binary ones start
+ * with length, which is always less than 'C' symbol code, so client could distinguish frames sent
+ * before server has switched.
+ * <p>
+ * All methods read and write frames directly from/to {@link ByteBuffer}s; buffers must have enough
+ * space for whole frame, see {@link BinaryProtocol#MAX_FRAME_SIZE}.
+ * @author yevhen bilous
+ */
+public final class BinaryProtocol {
+
+    public static final String UPGRADE_REQUEST = "PROTOCOL 2";
+    public static final int HEADER_SIZE = 2;
+    public static final int MAX_FRAME_SIZE = 4096;
+    public static final byte OP_CLIENT_TEXT = 0x10;
+
+    private static final byte ITEM_TEXT = 1;
+    private static final byte ITEM_CARDS = 2;
+    private static final byte ITEM_AMOUNT = 3;
+
+    private static final ClientMode[] MODES = ClientMode.values();
+    private static final Card[] CARDS = Card.values();
+    private static final HandOwner[] OWNERS = HandOwner.values();
+    private static final AmountKind[] AMOUNT_KINDS = AmountKind.values();
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * Writes server's frame with text lines.
+     */
+    public static void putText(ByteBuffer out, ClientMode mode, String... lines) {
+        int start = beginFrame(out, (byte) mode.ordinal());
+        for (String line : lines) {
+            putTextItem(out, line);
+        }
+        endFrame(out, start);
+    }
+
+    /**
+     * Writes server's frame with cards of one hand.
+     */
+    public static void putCards(ByteBuffer out, ClientMode mode, HandOwner owner, Hand hand) {
+        int start = beginFrame(out, (byte) mode.ordinal());
+        out.put(ITEM_CARDS);
+        out.put((byte) owner.ordinal());
+        out.put((byte) hand.getCardsCount());
+        for (int index = 0; index < hand.getCardsCount(); index++) {
+            out.put((byte) hand.getCard(index).ordinal());
+        }
+        endFrame(out, start);
+    }
+
+    /**
+     * Writes server's frame with money amount.
+     */
+    public static void putAmount(ByteBuffer out, ClientMode mode, AmountKind kind, int amount) {
+        int start = beginFrame(out, (byte) mode.ordinal());
+        out.put(ITEM_AMOUNT);
+        out.put((byte) kind.ordinal());
+        out.putInt(amount);
+        endFrame(out, start);
+    }
+
+    /**
+     * Writes client's frame with text typed by player.
+     */
+    public static void putClientText(ByteBuffer out, String text) {
+        int start = beginFrame(out, OP_CLIENT_TEXT);
+        putUtf8(out, text);
+        endFrame(out, start);
+    }
+
+    /**
+     * Checks if buffer contains complete frame, starting from buffer's position.
+     *
+     * @param in buffer with received bytes
+     * @return size of complete frame, including length header, or -1 if frame is not received completely
+     */
+    public static int completeFrameSize(ByteBuffer in) {
+        if (in.remaining() < HEADER_SIZE) return -1;
+        int size = HEADER_SIZE + (in.getShort(in.position()) & 0xFFFF);
+        return in.remaining() < size ? -1 : size;
+    }
+
+    /**
+     * Reads complete server's frame and renders its items as text, which could be shown to player.
+     *
+     * @param in   buffer, positioned at frame start; position is moved to the end of frame
+     * @param text builder, to which rendered items are appended, divided by new line symbols
+     * @return client mode, encoded in frame
+     */
+    public static ClientMode readFrame(ByteBuffer in, final StringBuilder text) {
+        return readFrame(in, new FrameVisitor() {
+            private boolean first = true;
+
+            public void onText(String line) {
+                nextItem();
+                text.append(line);
+            }
+
+            public void onCards(HandOwner owner, Hand hand) {
+                nextItem();
+                text.append(owner.format(hand));
+            }
+
+            public void onAmount(AmountKind kind, int amount) {
+                nextItem();
+                text.append(kind.format(amount));
+            }
+
+            private void nextItem() {
+                if (!first) text.append('\n');
+                first = false;
+            }
+        });
+    }
+
+    /**
+     * Reads complete server's frame and passes its items to visitor, so program could use cards and amounts
+     * without parsing text.
+     *
+     * @param in      buffer, positioned at frame start; position is moved to the end of frame
+     * @param visitor receiver of frame's items
+     * @return client mode, encoded in frame
+     */
+    public static ClientMode readFrame(ByteBuffer in, FrameVisitor visitor) {
+        int end = in.position() + HEADER_SIZE + (in.getShort() & 0xFFFF);
+        ClientMode mode = MODES[in.get()];
+        while (in.position() < end) {
+            byte item = in.get();
+            switch (item) {
+                case ITEM_TEXT: {
+                    int length = in.getShort() & 0xFFFF;
+                    visitor.onText(new String(in.array(), in.arrayOffset() + in.position(), length,
+                            StandardCharsets.UTF_8));
+                    in.position(in.position() + length);
+                    break;
+                }
+                case ITEM_CARDS: {
+                    HandOwner owner = OWNERS[in.get()];
+                    int count = in.get();
+                    Hand hand = new Hand();
+                    for (int index = 0; index < count; index++) {
+                        hand.receiveCard(CARDS[in.get()]);
+                    }
+                    visitor.onCards(owner, hand);
+                    break;
+                }
+                case ITEM_AMOUNT: {
+                    AmountKind kind = AMOUNT_KINDS[in.get()];
+                    visitor.onAmount(kind, in.getInt());
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown frame item: " + item);
+            }
+        }
+        return mode;
+    }
+
+    /**
+     * Reads complete client's frame.
+     *
+     * @param in buffer, positioned at frame start; position is moved to the end of frame
+     * @return text typed by player
+     * @throws IllegalArgumentException if frame is malformed
+     */
+    public static String readClientText(ByteBuffer in) {
+        // frame length includes opcode
+        int length = (in.getShort() & 0xFFFF) - 1;
+        if (length < 0) throw new IllegalArgumentException("Client's frame has no opcode");
+        byte opcode = in.get();
+        if (opcode != OP_CLIENT_TEXT) throw new IllegalArgumentException("Unknown client's opcode: " + opcode);
+        String text = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return text;
+    }
+
+    private static int beginFrame(ByteBuffer out, byte opcode) {
+        int start = out.position();
+        out.putShort((short) 0);
+        out.put(opcode);
+        return start;
+    }
+
+    private static void endFrame(ByteBuffer out, int start) {
+        out.putShort(start, (short) (out.position() - start - HEADER_SIZE));
+    }
+
+    private static void putTextItem(ByteBuffer out, String line) {
+        out.put(ITEM_TEXT);
+        int lengthPosition = out.position();
+        out.putShort((short) 0);
+        putUtf8(out, line);
+        out.putShort(lengthPosition, (short) (out.position() - lengthPosition - 2));
+    }
+
+    /**
+     * Encodes string as UTF-8 directly into buffer, without intermediate byte array.
+     * Unpaired surrogate characters are replaced by '?'.
+     */
+    private static void putUtf8(ByteBuffer out, String text) {
+        for (int index = 0; index < text.length(); index++) {
+            char symbol = text.charAt(index);
+            if (symbol < 0x80) {
+                out.put((byte) symbol);
+            } else if (symbol < 0x800) {
+                out.put((byte) (0xC0 | (symbol >> 6)));
+                out.put((byte) (0x80 | (symbol & 0x3F)));
+            } else if (Character.isHighSurrogate(symbol) && index + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(index + 1))) {
+                int codePoint = Character.toCodePoint(symbol, text.charAt(++index));
+                out.put((byte) (0xF0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(symbol)) {
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | (symbol >> 12)));
+                out.put((byte) (0x80 | ((symbol >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (symbol & 0x3F)));
+            }
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
 import java.io.*;
+import java.nio.ByteBuffer;
 
 /**
  * Blackjack client, that connects to server and serves as thin client, i.e. it doesn't implement
@@ -20,8 +21,37 @@ public class BlackjackClient implements Runnable {
 
     protected int serverPort = 9001;
     protected InetAddress address;
+    protected boolean binary = false;
+    protected String playerId = null;
+    public static final int RECONNECT_ATTEMPTS = 5;
+    public static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    // connection with server and session token, which are replaced on reconnection
+    private Socket clientSocket;
+    private BufferedInputStream socketInput;
+    private OutputStream socketOutput;
+    private PrintWriter socketWriter;
+    private String sessionToken = null;
+    private final ByteBuffer frameBuffer = ByteBuffer.allocate(BinaryProtocol.MAX_FRAME_SIZE);
+    private final StringBuilder text = new StringBuilder();
     public static final char TERMINATOR = '#';
     public static final char DIVIDER = '$';
+    /**
+     * Prefix of message, by which player identifies himself, so server plays with money of his account.
+     */
+    public static final String PLAYER_ID_PREFIX = "PLAYER ";
+    /**
+     * Prefix of token, which server sends in greeting; client, which lost connection, resumes its session
+     * by sending the token in {@link BlackjackClient#RESUME_PREFIX} message.
+     */
+    public static final String SESSION_TOKEN_PREFIX = "Session token: ";
+    public static final String RESUME_PREFIX = "RESUME ";
+    public static final String SESSION_RESUMED = "Your session is resumed.";
+    public static final String SESSION_NOT_RESUMED = "Your session can't be resumed.";
+    /**
+     * Message, by which player asks server for the best decision instead of making decision.
+     */
+    public static final String HINT_REQUEST = "hint";
 
     /**
      * Creates blackjack client, which connects to specified address and port.
@@ -33,6 +63,30 @@ public class BlackjackClient implements Runnable {
         this.serverPort = port;
     }
 
+    /**
+     * Creates blackjack client, which connects to specified address and port and optionally
+     * switches to {@link BinaryProtocol}.
+     * @param address address of blackjack server
+     * @param port port, which blackjack server is listening
+     * @param binary if true, client asks server to use binary protocol
+     */
+    public BlackjackClient(InetAddress address, int port, boolean binary) {
+        this(address, port);
+        this.binary = binary;
+    }
+
+    /**
+     * Creates blackjack client, which identifies player to server, so player keeps his money between games.
+     * @param address address of blackjack server
+     * @param port port, which blackjack server is listening
+     * @param binary if true, client asks server to use binary protocol
+     * @param playerId player's id, may be null - then player plays anonymously
+     */
+    public BlackjackClient(InetAddress address, int port, boolean binary, String playerId) {
+        this(address, port, binary);
+        this.playerId = playerId;
+    }
+
     /**
      * Sends message to server.
      * @param writer {@link PrintWriter} object, used to send message thr
@@ -60,6 +114,7 @@ public class BlackjackClient implements Runnable {
         try {
             int byte_read = socketInBufStream.read();
             while ((char) byte_read != TERMINATOR) {
+                if (byte_read == -1) return null;
                 byteArrayOutputStream.write(byte_read);
                 byte_read = socketInBufStream.read();
             }
@@ -72,6 +127,63 @@ public class BlackjackClient implements Runnable {
         }
     }
 
+    /**
+     * Sends message to server in {@link BinaryProtocol}.
+     * @param output socket's output stream
+     * @param frameBuffer buffer, in which frame is encoded
+     * @param message message, which client want to send to server
+     * @throws IOException if message could not be sent
+     */
+    public static void sendBinaryMessage(OutputStream output, ByteBuffer frameBuffer, String message)
+            throws IOException {
+        frameBuffer.clear();
+        BinaryProtocol.putClientText(frameBuffer, message);
+        output.write(frameBuffer.array(), 0, frameBuffer.position());
+        output.flush();
+    }
+
+    /**
+     * Receives message from server, sent either in text protocol or in {@link BinaryProtocol}:
+     * text messages start with client mode name, binary frames start with length, which is
+     * always less than first symbol of mode name.
+     * @param socketInBufStream {@link BufferedInputStream} object, used to receive messages from server
+     * @param frameBuffer buffer, in which binary frame is received
+     * @param text builder, to which informational message is appended
+     * @return client mode, encoded in message, or null if message was not received
+     */
+    public static ClientMode receiveMessage(BufferedInputStream socketInBufStream, ByteBuffer frameBuffer,
+                                            StringBuilder text) {
+        try {
+            socketInBufStream.mark(1);
+            int firstByte = socketInBufStream.read();
+            if (firstByte == -1) return null;
+            socketInBufStream.reset();
+            if (firstByte == ClientMode.CLIENT_RECEIVE.name().charAt(0)) {
+                String incomingString = receiveIncomingData(socketInBufStream);
+                if (incomingString == null) return null;
+                text.append(getMessage(incomingString));
+                return getMode(incomingString);
+            }
+            frameBuffer.clear();
+            readFully(socketInBufStream, frameBuffer, BinaryProtocol.HEADER_SIZE);
+            int size = BinaryProtocol.HEADER_SIZE + (frameBuffer.getShort(0) & 0xFFFF);
+            if (size > frameBuffer.capacity()) return null;
+            readFully(socketInBufStream, frameBuffer, size);
+            frameBuffer.flip();
+            return BinaryProtocol.readFrame(frameBuffer, text);
+        } catch (IOException exception) {
+            return null;
+        }
+    }
+
+    private static void readFully(InputStream input, ByteBuffer buffer, int upTo) throws IOException {
+        while (buffer.position() < upTo) {
+            int read = input.read(buffer.array(), buffer.position(), upTo - buffer.position());
+            if (read == -1) throw new IOException("Connection closed.");
+            buffer.position(buffer.position() + read);
+        }
+    }
+
     /**
      * Returns client mode, encoded in message received from server. Mode is actually an enum instance
      * of {@link ClientMode}. Mode is used to determine client behavior.
@@ -96,98 +208,165 @@ public class BlackjackClient implements Runnable {
      * Implements client-server communication from client side. Basically, client's task is to:
      * 1) establish connection 2) loop through read-write cycle (read from server and write to console
      * and vice versa) 3) close socket if communication with server is done.
+     * If connection is lost and server gave session token, client reconnects and resumes session.
      */
     public void run() {
         // establish connection with server
         // and terminates execution if address is bad, or server os unreachable
-        Socket clientSocket = null;
-        boolean connectionComplete = false;
+        if (!connect()) return;
+        System.out.println("Socket opened. Waiting for game round start...");
+        BufferedReader playerResponseReader = new BufferedReader(new InputStreamReader(System.in));
+
+        // getting initial "greeting" message from server
+        ClientMode clientMode = receive();
+        if (clientMode == null) {
+            System.out.println("Server disconnected.");
+            return;
+        }
+        System.out.println(text);
+
+        // read-write-wait client loop. Behavior is determined by clientMode enum instance
+        while (clientMode != ClientMode.CLIENT_DISCONNECT) {
+            switch (clientMode) {
+                case CLIENT_RECEIVE: {
+                    clientMode = receive();
+                    if (clientMode == null) clientMode = reconnect();
+                    if (clientMode == null) {
+                        System.out.println("Server disconnected.");
+                        return;
+                    }
+                    if (text.length() > 1) System.out.println(text);
+                    break;
+                }
+                case CLIENT_SEND_TO_SERVER: {
+                    String outputData = null;
+                    try {
+                        outputData = playerResponseReader.readLine();
+                    } catch (IOException e) {
+                        System.err.println("Internal error.");
+                        e.printStackTrace();
+                    }
+                    if (outputData == null) {
+                        // player's input is closed, so nothing more could be sent
+                        clientMode = ClientMode.CLIENT_DISCONNECT;
+                        break;
+                    }
+                    // if message isn't sent, connection is lost: it's found out on next receive
+                    send(outputData);
+                    clientMode = ClientMode.CLIENT_RECEIVE;
+                    break;
+                }
+            }
+        }
+
+        // CLIENT_DISCONNECT mode received
+        // trying to close socket and end execution
+        try {
+            clientSocket.close();
+        } catch (IOException e) {
+            System.err.println("Unable to close connection properly.");
+            e.printStackTrace();
+        }
+        System.out.println("Connection closed.");
+    }
+
+    /**
+     * Opens connection with server, asks it to switch to binary protocol and identifies player.
+     * @return false, if server is unreachable
+     */
+    private boolean connect() {
         try {
             clientSocket = new Socket();
             clientSocket.connect(new InetSocketAddress(address, serverPort), 5000);
-            connectionComplete = true;
-            System.out.println("Socket opened. Waiting for game round start...");
+            socketInput = new BufferedInputStream(clientSocket.getInputStream());
+            socketOutput = clientSocket.getOutputStream();
+            socketWriter = new PrintWriter(new OutputStreamWriter(socketOutput));
         } catch (UnknownHostException unkHosExc) {
             System.err.println("Server address is inappropriate.");
-            return;
+            return false;
         } catch (IOException ioExc) {
             System.out.println("Server is unreachable.");
+            return false;
         }
+        // asking server to switch to binary protocol; server may still send some text messages before it
+        if (binary) sendMessage(socketWriter, BinaryProtocol.UPGRADE_REQUEST);
+        if (playerId != null && sessionToken == null) send(PLAYER_ID_PREFIX + playerId);
+        return true;
+    }
 
-        // assume that connection was successful
-        if (connectionComplete && clientSocket.isConnected()) {
-
-            // creating and initializing service variable such as streams and buffers
-            BufferedReader playerResponseReader = new BufferedReader(new InputStreamReader(System.in));
-            InputStream socketInputStream = null;
-            OutputStream socketOutputStream = null;
+    /**
+     * Reconnects to server and resumes session. Messages of new session, which server starts before
+     * it receives token, are skipped.
+     * @return client mode of first message after session was resumed, or null if it can't be resumed
+     */
+    private ClientMode reconnect() {
+        if (sessionToken == null) return null;
+        try {
+            clientSocket.close();
+        } catch (IOException e) {
+            // connection is lost anyway
+        }
+        for (int attempt = 1; attempt <= RECONNECT_ATTEMPTS; attempt++) {
+            System.out.println("Connection lost. Reconnecting...");
             try {
-                socketInputStream = clientSocket.getInputStream();
-                socketOutputStream = clientSocket.getOutputStream();
-            } catch (IOException e) {
-                e.printStackTrace();
+                Thread.sleep(RECONNECT_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                return null;
             }
-            if(socketInputStream==null || socketOutputStream==null) {
-                System.err.println("Unable to properly work with socket.");
-                return;
+            String token = sessionToken;
+            if (!connect()) continue;
+            send(RESUME_PREFIX + token);
+            ClientMode clientMode = receive();
+            while (clientMode != null && clientMode != ClientMode.CLIENT_DISCONNECT
+                    && text.indexOf(SESSION_RESUMED) == -1 && text.indexOf(SESSION_NOT_RESUMED) == -1) {
+                clientMode = receive();
             }
-            BufferedInputStream bufferedInputStream = new BufferedInputStream(socketInputStream);
-            PrintWriter socketWriter = new PrintWriter(new OutputStreamWriter(socketOutputStream));
-
-            // getting initial "greeting" message from server
-            String incomingString = receiveIncomingData(bufferedInputStream);
-            System.out.println(getMessage(incomingString));
-
-            // determining next behavior
-            ClientMode clientMode = getMode(incomingString);
-
-            // read-write-wait client loop. Behavior is determined by clientMode enum instance
-            while (clientMode != ClientMode.CLIENT_DISCONNECT) {
-                switch (clientMode) {
-                    case CLIENT_RECEIVE: {
-                        incomingString = receiveIncomingData(bufferedInputStream);
-                        if(incomingString==null) {
-                            System.out.println("Server disconnected.");
-                            return;
-                        }
-                        String message = getMessage(incomingString);
-                        if (message.length() > 1) System.out.println(getMessage(incomingString));
-                        clientMode = getMode(incomingString);
-                        break;
-                    }
-                    case CLIENT_SEND_TO_SERVER: {
-                        String outputData = null;
-                        try {
-                            outputData = playerResponseReader.readLine();
-                        } catch (IOException e) {
-                            System.err.println("Internal error.");
-                            e.printStackTrace();
-                        }
-                        sendMessage(socketWriter, outputData);
-                        clientMode = ClientMode.CLIENT_RECEIVE;
-                        break;
-                    }
-                }
+            if (text.indexOf(SESSION_RESUMED) != -1) {
+                // token of skipped new session is forgotten
+                sessionToken = token;
+            } else if (clientMode != null && playerId != null) {
+                send(PLAYER_ID_PREFIX + playerId);
             }
+            return clientMode;
+        }
+        return null;
+    }
 
-            // CLIENT_DISCONNECT mode received
-            // trying to close socket and end execution
-            try {
-                clientSocket.close();
-            } catch (IOException e) {
-                System.err.println("Unable to close connection properly.");
-                e.printStackTrace();
-            }
-            System.out.println("Connection closed.");
+    /**
+     * Receives message from server into {@link BlackjackClient#text} and remembers session token, if message has it.
+     * @return client mode, or null if connection is lost
+     */
+    private ClientMode receive() {
+        text.setLength(0);
+        ClientMode clientMode = receiveMessage(socketInput, frameBuffer, text);
+        int tokenStart = text.indexOf(SESSION_TOKEN_PREFIX);
+        if (tokenStart != -1) {
+            int tokenEnd = text.indexOf("\n", tokenStart);
+            sessionToken = text.substring(tokenStart + SESSION_TOKEN_PREFIX.length(),
+                    tokenEnd == -1 ? text.length() : tokenEnd).trim();
+        }
+        return clientMode;
+    }
+
+    private void send(String message) {
+        if (!binary) {
+            sendMessage(socketWriter, message);
+            return;
+        }
+        try {
+            sendBinaryMessage(socketOutput, frameBuffer, message);
+        } catch (IOException e) {
+            // connection is lost: it's found out on next receive
         }
     }
 
     /**
      * Executable method, which parses cli arguments as follows:
-     * ip-address port
+     * ip-address port [binary] [player-id]
      * then creates new Thread with blackjack client, which receive specified address and port
-     * on it's creation
-     * @param args must be in format: ip-address port
+     * on it's creation. If third argument is "binary", client uses {@link BinaryProtocol}.
+     * Other argument is player's id, by which player's money is kept by server.
+     * @param args must be in format: ip-address port [binary] [player-id]
      */
     public static void main(String... args) {
         InetAddress address = null;
@@ -204,6 +383,12 @@ public class BlackjackClient implements Runnable {
             }
             port = Integer.valueOf(args[1]);
         }
-        new Thread(new BlackjackClient(address, port)).start();
+        boolean binary = false;
+        String playerId = null;
+        for (int index = 2; index < args.length; index++) {
+            if ("binary".equals(args[index])) binary = true;
+            else playerId = args[index];
+        }
+        new Thread(new BlackjackClient(address, port, binary, playerId)).start();
     }
 }
@@ -0,0 +1,203 @@
+package blackjack.client;
+
+import blackjack.cards.Hand;
+import blackjack.cards.PlayerDecision;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One bot player of {@link LoadGenerator}. Bot connects to server, switches to {@link BinaryProtocol} and answers
+ * server's requests automatically: makes fixed bet, asks strategy for decisions and always agrees to play another
+ * round. Bot is driven by selector of its worker, so it never blocks.
+ * Bot measures connect time, time from bet to dealt cards and time from decision to server's answer.
+ * @author yevhen bilous
+ */
+class BotConnection implements FrameVisitor {
+
+    // beginnings of server's requests, see server's messages
+    private static final String BET_REQUEST = "Please, type your bet";
+    private static final String DECISION_REQUEST = "Type h for HIT";
+    private static final String ANOTHER_ROUND_REQUEST = "Want to play another round";
+
+    private final LoadGenerator.Worker worker;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final ByteBuffer input = ByteBuffer.allocate(4 * BinaryProtocol.MAX_FRAME_SIZE);
+    private final ByteBuffer output = ByteBuffer.allocate(BinaryProtocol.MAX_FRAME_SIZE);
+    private final StringBuilder text = new StringBuilder();
+    private Hand dealerHand = new Hand();
+    private Hand playerHand = new Hand();
+    private final long connectStartTime;
+    // 0 if nothing is waited for
+    private long betTime = 0;
+    private long decisionTime = 0;
+    private boolean finished = false;
+
+    /**
+     * Starts connecting to server.
+     *
+     * @param worker   worker, which drives bot and collects its measurements
+     * @param selector worker's selector
+     * @param address  server's address
+     * @throws IOException if connection can't be started
+     */
+    BotConnection(LoadGenerator.Worker worker, Selector selector, InetSocketAddress address) throws IOException {
+        this.worker = worker;
+        channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        connectStartTime = System.nanoTime();
+        boolean connected = channel.connect(address);
+        key = channel.register(selector, connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+        if (connected) onConnected();
+    }
+
+    void onConnectable() throws IOException {
+        if (!channel.finishConnect()) return;
+        key.interestOps(SelectionKey.OP_READ);
+        onConnected();
+    }
+
+    private void onConnected() throws IOException {
+        worker.connectLatency.record(System.nanoTime() - connectStartTime);
+        // upgrade request is sent in text protocol
+        output.put((BinaryProtocol.UPGRADE_REQUEST + BlackjackClient.TERMINATOR).getBytes(StandardCharsets.UTF_8));
+        writeOutput();
+    }
+
+    /**
+     * Reads and processes all complete frames, received from server.
+     */
+    void onReadable() throws IOException {
+        int read = channel.read(input);
+        if (read == -1) throw new IOException("Server closed connection.");
+        input.flip();
+        while (input.hasRemaining() && !finished) {
+            ClientMode mode;
+            text.setLength(0);
+            if (input.get(input.position()) == ClientMode.CLIENT_RECEIVE.name().charAt(0)) {
+                // text message, sent before server switched to binary protocol
+                int end = indexOfTerminator();
+                if (end == -1) break;
+                String incomingString = new String(input.array(), input.position(), end - input.position(),
+                        StandardCharsets.UTF_8);
+                input.position(end + 1);
+                frameReceived();
+                text.append(BlackjackClient.getMessage(incomingString));
+                mode = BlackjackClient.getMode(incomingString);
+            } else {
+                if (BinaryProtocol.completeFrameSize(input) == -1) break;
+                frameReceived();
+                mode = BinaryProtocol.readFrame(input, this);
+            }
+            onFrame(mode);
+        }
+        input.compact();
+        if (!input.hasRemaining()) throw new IOException("Too long message from server.");
+    }
+
+    void onWritable() throws IOException {
+        writeOutput();
+    }
+
+    public void onText(String line) {
+        if (text.length() > 0) text.append('\n');
+        text.append(line);
+    }
+
+    public void onCards(HandOwner owner, Hand hand) {
+        if (owner == HandOwner.DEALER) {
+            dealerHand = hand;
+            return;
+        }
+        playerHand = hand;
+        if (betTime != 0) {
+            worker.betLatency.record(System.nanoTime() - betTime);
+            betTime = 0;
+        }
+    }
+
+    public void onAmount(AmountKind kind, int amount) {
+        // net is sent once in each round, when bet is settled
+        if (kind == AmountKind.NET) worker.rounds++;
+    }
+
+    private void frameReceived() {
+        if (decisionTime != 0) {
+            worker.decisionLatency.record(System.nanoTime() - decisionTime);
+            decisionTime = 0;
+        }
+    }
+
+    private void onFrame(ClientMode mode) throws IOException {
+        switch (mode) {
+            case CLIENT_RECEIVE: {
+                break;
+            }
+            case CLIENT_SEND_TO_SERVER: {
+                answer(text.toString());
+                break;
+            }
+            case CLIENT_DISCONNECT: {
+                finished = true;
+                worker.botFinished(this);
+                break;
+            }
+        }
+    }
+
+    private void answer(String request) throws IOException {
+        if (request.startsWith(BET_REQUEST)) {
+            send(String.valueOf(worker.getBet()));
+            betTime = System.nanoTime();
+        } else if (request.startsWith(DECISION_REQUEST)) {
+            PlayerDecision decision = worker.getStrategy().decide(playerHand, dealerHand);
+            send(String.valueOf(decision.getLetter()));
+            decisionTime = System.nanoTime();
+        } else if (request.startsWith(ANOTHER_ROUND_REQUEST)) {
+            send("y");
+        } else {
+            send("n");
+        }
+    }
+
+    private void send(String message) throws IOException {
+        BinaryProtocol.putClientText(output, message);
+        writeOutput();
+    }
+
+    /**
+     * Writes buffered frames; if socket's buffer is full, rest is written when channel becomes writable.
+     */
+    private void writeOutput() throws IOException {
+        output.flip();
+        channel.write(output);
+        output.compact();
+        int interestOps = output.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (key.interestOps() != interestOps) key.interestOps(interestOps);
+    }
+
+    private int indexOfTerminator() {
+        for (int index = input.position(); index < input.limit(); index++) {
+            if (input.get(index) == BlackjackClient.TERMINATOR) return index;
+        }
+        return -1;
+    }
+
+    void close() {
+        finished = true;
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // nothing to do, bot is not used anymore
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package blackjack.client;
+
+import blackjack.cards.Hand;
+
+/**
+ * Receiver of items of server's frame, which is read by {@link BinaryProtocol#readFrame(java.nio.ByteBuffer,
+ * FrameVisitor)}. Items are passed in the same order, in which server has written them.
+ * @author yevhen bilous
+ */
+public interface FrameVisitor {
+
+    /**
+     * @param line text line, which should be shown to player
+     */
+    void onText(String line);
+
+    /**
+     * @param owner owner of cards
+     * @param hand  cards of owner's hand; new hand is created for each item
+     */
+    void onCards(HandOwner owner, Hand hand);
+
+    /**
+     * @param kind   kind of money amount
+     * @param amount money amount
+     */
+    void onAmount(AmountKind kind, int amount);
+}
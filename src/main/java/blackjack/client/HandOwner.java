@@ -0,0 +1,27 @@
+package blackjack.client;
+
+import blackjack.cards.Hand;
+
+/**
+ * Owner of cards, which server reports to player. In text protocol cards are sent as text line built
+ * by {@link HandOwner#format(Hand)}; in binary protocol only owner and card codes are sent.
+ * @author yevhen bilous
+ */
+public enum HandOwner {
+    DEALER("Dealer's cards: "),
+    PLAYER("Player's cards: ");
+
+    private final String prefix;
+
+    HandOwner(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * @param hand owner's hand
+     * @return text line, which is shown to player
+     */
+    public String format(Hand hand) {
+        return prefix + hand;
+    }
+}
@@ -0,0 +1,231 @@
+package blackjack.client;
+
+import blackjack.cards.Hand;
+import blackjack.metrics.LatencyHistogram;
+import blackjack.simulation.BasicStrategy;
+import blackjack.simulation.PlayerStrategy;
+import blackjack.simulation.ThresholdStrategy;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+
+/**
+ * Headless load generator: opens many concurrent connections to blackjack server (either single player
+ * or multiplayer one), and each connection is played by {@link BotConnection} with given strategy.
+ * Bots are driven by a few worker threads with their own selectors, so thousands of connections need
+ * no thread per connection. Bot, whose session was finished by server, is replaced by new one.
+ * After specified time generator prints rounds per second and percentiles of connect time, time from bet
+ * to dealt cards and decision's round trip time.
+ * @author yevhen bilous
+ */
+public class LoadGenerator {
+
+    public static final int DEFAULT_BET = 1;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final InetSocketAddress address;
+    private final int connections;
+    private final int threads;
+    private final PlayerStrategy strategy;
+    private final int bet;
+
+    /**
+     * @param address     server's address
+     * @param connections amount of concurrent connections
+     * @param threads     amount of worker threads, connections are distributed between them
+     * @param strategy    strategy, which makes decisions for all bots
+     * @param bet         bet of each bot in each round
+     */
+    public LoadGenerator(InetSocketAddress address, int connections, int threads, PlayerStrategy strategy, int bet) {
+        this.address = address;
+        this.connections = connections;
+        this.threads = threads;
+        this.strategy = strategy;
+        this.bet = bet;
+    }
+
+    /**
+     * Plays with server during specified time, then closes all connections and prints report.
+     *
+     * @param durationMillis time of load
+     * @throws IOException          if selectors can't be opened
+     * @throws InterruptedException if thread was interrupted while load was generated
+     */
+    public void run(long durationMillis) throws IOException, InterruptedException {
+        Worker[] workers = new Worker[threads];
+        Thread[] workerThreads = new Thread[threads];
+        for (int index = 0; index < threads; index++) {
+            int workerConnections = connections / threads + (index < connections % threads ? 1 : 0);
+            workers[index] = new Worker(workerConnections);
+            workerThreads[index] = new Thread(workers[index], "bots-" + index);
+        }
+        long start = System.nanoTime();
+        for (Thread thread : workerThreads) {
+            thread.start();
+        }
+        Thread.sleep(durationMillis);
+        for (Worker worker : workers) {
+            worker.stop();
+        }
+        for (Thread thread : workerThreads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        printReport(workers, seconds);
+    }
+
+    private void printReport(Worker[] workers, double seconds) {
+        LatencyHistogram connectLatency = new LatencyHistogram();
+        LatencyHistogram betLatency = new LatencyHistogram();
+        LatencyHistogram decisionLatency = new LatencyHistogram();
+        long rounds = 0;
+        long sessions = 0;
+        long errors = 0;
+        for (Worker worker : workers) {
+            connectLatency.add(worker.connectLatency);
+            betLatency.add(worker.betLatency);
+            decisionLatency.add(worker.decisionLatency);
+            rounds += worker.rounds;
+            sessions += worker.sessions;
+            errors += worker.errors;
+        }
+        System.out.println("Connections:  " + connections + ", threads: " + threads);
+        System.out.println(String.format("Time:         %.3f s", seconds));
+        System.out.println("Sessions:     " + sessions + ", errors: " + errors);
+        System.out.println("Rounds:       " + rounds);
+        System.out.println(String.format("Rounds/sec:   %.1f", rounds / seconds));
+        StringBuilder header = new StringBuilder(String.format("%-14s%10s", "Latency, ms", "count"));
+        for (double percentile : PERCENTILES) {
+            String name = percentile == Math.rint(percentile) ? String.valueOf((long) percentile)
+                    : String.valueOf(percentile);
+            header.append(String.format("%10s", "p" + name));
+        }
+        System.out.println(header.append(String.format("%10s", "max")));
+        printLatency("connect", connectLatency);
+        printLatency("bet to deal", betLatency);
+        printLatency("decision", decisionLatency);
+    }
+
+    private static void printLatency(String name, LatencyHistogram histogram) {
+        StringBuilder line = new StringBuilder(String.format("%-14s%10d", name, histogram.getTotalCount()));
+        for (double percentile : PERCENTILES) {
+            line.append(String.format("%10.3f", histogram.getPercentile(percentile) / 1e6));
+        }
+        System.out.println(line.append(String.format("%10.3f", histogram.getMax() / 1e6)));
+    }
+
+    /**
+     * Thread, which drives its bots by selector and collects their measurements. Measurements are read
+     * only after thread has finished.
+     */
+    final class Worker implements Runnable {
+
+        final LatencyHistogram connectLatency = new LatencyHistogram();
+        final LatencyHistogram betLatency = new LatencyHistogram();
+        final LatencyHistogram decisionLatency = new LatencyHistogram();
+        long rounds = 0;
+        long sessions = 0;
+        long errors = 0;
+
+        private final int workerConnections;
+        private final Selector selector;
+        private volatile boolean stopped = false;
+
+        Worker(int workerConnections) throws IOException {
+            this.workerConnections = workerConnections;
+            this.selector = Selector.open();
+        }
+
+        public void run() {
+            for (int index = 0; index < workerConnections; index++) {
+                startBot();
+            }
+            while (!stopped) {
+                try {
+                    selector.select();
+                } catch (IOException e) {
+                    System.err.println("Selector failed: " + e.getMessage());
+                    break;
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    BotConnection bot = (BotConnection) key.attachment();
+                    try {
+                        if (key.isValid() && key.isConnectable()) bot.onConnectable();
+                        if (key.isValid() && key.isReadable()) bot.onReadable();
+                        if (key.isValid() && key.isWritable()) bot.onWritable();
+                    } catch (IOException e) {
+                        // bot isn't replaced, otherwise unreachable server would be flooded with connects
+                        errors++;
+                        bot.close();
+                    }
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                ((BotConnection) key.attachment()).close();
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Unable to close selector.");
+            }
+        }
+
+        /**
+         * Closes bot, whose session was finished by server, and starts new one instead.
+         */
+        void botFinished(BotConnection bot) {
+            bot.close();
+            if (!stopped) startBot();
+        }
+
+        int getBet() {
+            return bet;
+        }
+
+        PlayerStrategy getStrategy() {
+            return strategy;
+        }
+
+        private void startBot() {
+            try {
+                new BotConnection(this, selector, address);
+                sessions++;
+            } catch (IOException e) {
+                errors++;
+            }
+        }
+
+        void stop() {
+            stopped = true;
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Parses command line arguments and runs load generator.
+     *
+     * @param args must be in format: address port connections [seconds [threads [standScore [bet]]]];
+     *             standScore "basic" makes bots play by {@link BasicStrategy}
+     */
+    public static void main(String... args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            System.err.println("Need arguments: address port connections [seconds [threads [standScore|basic [bet]]]]");
+            return;
+        }
+        InetSocketAddress address = new InetSocketAddress(args[0], Integer.valueOf(args[1]));
+        int connections = Integer.valueOf(args[2]);
+        long durationMillis = args.length > 3 ? Long.valueOf(args[3]) * 1000 : 30000;
+        int threads = args.length > 4 ? Integer.valueOf(args[4]) : Runtime.getRuntime().availableProcessors();
+        PlayerStrategy strategy;
+        if (args.length > 5 && "basic".equals(args[5])) strategy = new BasicStrategy();
+        else strategy = new ThresholdStrategy(args.length > 5 ? Integer.valueOf(args[5]) : Hand.UPPER_HIT);
+        int bet = args.length > 6 ? Integer.valueOf(args[6]) : DEFAULT_BET;
+        new LoadGenerator(address, connections, threads, strategy, bet).run(durationMillis);
+    }
+}
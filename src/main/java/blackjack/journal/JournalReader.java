@@ -0,0 +1,152 @@
+package blackjack.journal;
+
+import blackjack.cards.Card;
+import blackjack.cards.GameResult;
+import blackjack.cards.PlayerDecision;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Streams records of one journal segment, written by {@link JournalWriter}. Segment is mapped to memory
+ * and records are read into one reused {@link JournalRecord}. Reading stops at first empty record, so segment,
+ * which is still written or was cut by crash, is read up to its last complete record.
+ * @author yevhen bilous
+ */
+public class JournalReader implements Closeable {
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer segment;
+    private final int segmentIndex;
+    private int position = JournalWriter.HEADER_SIZE;
+
+    /**
+     * @param segmentFile segment file
+     * @throws IOException if file can't be read or isn't journal segment
+     */
+    public JournalReader(File segmentFile) throws IOException {
+        file = new RandomAccessFile(segmentFile, "r");
+        try {
+            segment = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            if (segment.capacity() < JournalWriter.HEADER_SIZE || segment.getInt(0) != JournalWriter.MAGIC) {
+                throw new IOException("Not a journal segment: " + segmentFile);
+            }
+            if (segment.getInt(4) != JournalWriter.VERSION || segment.getInt(8) != JournalRecord.SIZE) {
+                throw new IOException("Unsupported journal version: " + segment.getInt(4));
+            }
+            segmentIndex = segment.getInt(12);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads next record.
+     *
+     * @param record record, which is filled by read values
+     * @return false, if there are no more records in segment
+     * @throws IOException if record has unknown type
+     */
+    public boolean next(JournalRecord record) throws IOException {
+        if (position + JournalRecord.SIZE > segment.capacity()) return false;
+        byte code = segment.get(position);
+        if (code == 0) return false;
+        RecordType type = RecordType.fromCode(code);
+        if (type == null) throw new IOException("Unknown record type " + code + " at " + position);
+        record.type = type;
+        record.box = segment.get(position + 1) & 0xFF;
+        record.code = segment.getShort(position + 2) & 0xFFFF;
+        record.amount = segment.getInt(position + 4);
+        record.time = segment.getLong(position + 8);
+        record.round = segment.getLong(position + 16);
+        record.value = segment.getLong(position + 24);
+        position += JournalRecord.SIZE;
+        return true;
+    }
+
+    public int getSegmentIndex() {
+        return segmentIndex;
+    }
+
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * @return record as text line with decoded cards, decisions and results
+     */
+    public static String describe(JournalRecord record) {
+        StringBuilder line = new StringBuilder();
+        line.append(record.getRound()).append(' ').append(record.getType());
+        if (record.getBox() != 0) line.append(" box ").append(record.getBox());
+        switch (record.getType()) {
+            case ROUND_START: {
+                line.append(" players ").append(record.getAmount());
+                if ((record.getCode() & JournalWriter.DEALER_SKIPS_BLACKJACK) != 0) {
+                    line.append(" (dealer skips blackjack)");
+                }
+                break;
+            }
+            case BET: {
+                line.append(' ').append(record.getAmount());
+                break;
+            }
+            case SHOE: {
+                line.append(" decks ").append(record.getCode()).append(" seed ").append(record.getValue())
+                        .append(" dealt cards ").append(record.getAmount());
+                break;
+            }
+            case CARD: {
+                if (record.getBox() == 0) line.append(" dealer");
+                line.append(' ').append(Card.values()[record.getCode()]);
+                break;
+            }
+            case DECISION: {
+                line.append(' ').append(PlayerDecision.values()[record.getCode()]);
+                if (record.getAmount() == 1) line.append(" (automatic)");
+                break;
+            }
+            case SETTLEMENT: {
+                line.append(' ').append(GameResult.values()[record.getCode()]).append(" net ")
+                        .append(record.getAmount()).append(" money ").append(record.getValue());
+                break;
+            }
+            case ROUND_END: {
+                if (record.getAmount() == 1) line.append(" (abandoned)");
+                break;
+            }
+            default:
+                break;
+        }
+        return line.toString();
+    }
+
+    /**
+     * Prints records of specified segment files.
+     *
+     * @param args segment files
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("You need to specify journal segment files as arguments.");
+            return;
+        }
+        JournalRecord record = new JournalRecord();
+        for (String fileName : args) {
+            JournalReader reader = new JournalReader(new File(fileName));
+            try {
+                System.out.println("Segment " + reader.getSegmentIndex() + ": " + fileName);
+                while (reader.next(record)) {
+                    System.out.println(describe(record));
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+}
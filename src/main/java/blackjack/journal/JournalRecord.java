@@ -0,0 +1,63 @@
+package blackjack.journal;
+
+/**
+ * One record of round journal. Reader fills the same record object again and again, so record must be copied,
+ * if it's needed after next record is read.
+ * <p>
+ * Record layout, 32 bytes, big-endian:
+ * <pre>
+ * offset 0  u8  type      {@link RecordType} code
+ * offset 1  u8  box       0 - dealer or table, players' boxes start from 1
+ * offset 2  u16 code      card, decision or result ordinal, amount of decks, rule flags
+ * offset 4  i32 amount    bet, net, dealt cards count or flag
+ * offset 8  i64 time      milliseconds since epoch
+ * offset 16 i64 round     round id, unique for writer
+ * offset 24 i64 value     shuffle seed or player's money
+ * </pre>
+ * @author yevhen bilous
+ */
+public class JournalRecord {
+
+    public static final int SIZE = 32;
+
+    RecordType type;
+    int box;
+    int code;
+    int amount;
+    long time;
+    long round;
+    long value;
+
+    public RecordType getType() {
+        return type;
+    }
+
+    public int getBox() {
+        return box;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public long getRound() {
+        return round;
+    }
+
+    public long getValue() {
+        return value;
+    }
+
+    public String toString() {
+        return type + " round=" + round + " box=" + box + " code=" + code + " amount=" + amount + " value=" + value
+                + " time=" + time;
+    }
+}
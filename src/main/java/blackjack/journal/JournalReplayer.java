@@ -0,0 +1,268 @@
+package blackjack.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays journaled rounds in bulk and reports rounds, whose replay differs from journal.
+ * Segments are read by one thread, which collects records into {@link RecordedRound}s and passes them
+ * in batches to worker threads; each worker has its own {@link RoundReplayer}. Queue of batches is short,
+ * so reading thread replays batch itself, when workers are behind, and memory stays bounded for any journal.
+ * <p>
+ * Rounds ids are unique for one writer only, so segments of each writer (files with the same name prefix)
+ * are read separately, in order of their indexes.
+ * @author yevhen bilous
+ */
+public class JournalReplayer {
+
+    public static final int BATCH_ROUNDS = 4096;
+    public static final int MAX_REPORTED_MISMATCHES = 20;
+
+    private final int parallelism;
+    private final LongAdder replayedRounds = new LongAdder();
+    private final LongAdder mismatchedRounds = new LongAdder();
+    private final LongAdder incompleteRounds = new LongAdder();
+    private final AtomicInteger reportedMismatches = new AtomicInteger();
+    private final ConcurrentLinkedQueue<String> mismatches = new ConcurrentLinkedQueue<String>();
+    private final ThreadLocal<RoundReplayer> replayers = new ThreadLocal<RoundReplayer>() {
+        protected RoundReplayer initialValue() {
+            return new RoundReplayer();
+        }
+    };
+
+    /**
+     * @param parallelism amount of worker threads
+     */
+    public JournalReplayer(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Replays all complete rounds of specified segments. Rounds without start (their start is in deleted segment)
+     * or without end (server was stopped during round) are counted as incomplete and aren't replayed.
+     *
+     * @param segmentFiles segment files of one or several writers
+     * @throws IOException if segment can't be read
+     */
+    public void replay(List<File> segmentFiles) throws IOException {
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(parallelism * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            for (List<File> writerSegments : groupByWriter(segmentFiles).values()) {
+                replayWriter(writerSegments, workers);
+            }
+        } finally {
+            workers.shutdown();
+        }
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void replayWriter(List<File> segments, ThreadPoolExecutor workers) throws IOException {
+        Map<Long, RecordedRound> openRounds = new HashMap<Long, RecordedRound>();
+        List<RecordedRound> batch = new ArrayList<RecordedRound>(BATCH_ROUNDS);
+        JournalRecord record = new JournalRecord();
+        for (File segmentFile : segments) {
+            JournalReader reader = new JournalReader(segmentFile);
+            try {
+                while (reader.next(record)) {
+                    if (record.type == RecordType.ROUND_START) {
+                        openRounds.put(record.round, new RecordedRound(record));
+                        continue;
+                    }
+                    RecordedRound round = record.type == RecordType.ROUND_END ? openRounds.remove(record.round)
+                            : openRounds.get(record.round);
+                    if (round == null) {
+                        if (record.type == RecordType.ROUND_END) incompleteRounds.increment();
+                        continue;
+                    }
+                    round.add(record);
+                    if (!round.isEnded()) continue;
+                    batch.add(round);
+                    if (batch.size() == BATCH_ROUNDS) {
+                        workers.execute(new BatchTask(batch));
+                        batch = new ArrayList<RecordedRound>(BATCH_ROUNDS);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        if (!batch.isEmpty()) workers.execute(new BatchTask(batch));
+        incompleteRounds.add(openRounds.size());
+    }
+
+    /**
+     * Finds round in segments and replays it with transcript.
+     *
+     * @param segmentFiles segment files of one writer
+     * @param roundId      round id
+     * @return transcript and result of replay, or null if there is no complete round with such id
+     * @throws IOException if segment can't be read
+     */
+    public static String describe(List<File> segmentFiles, long roundId) throws IOException {
+        RecordedRound round = null;
+        JournalRecord record = new JournalRecord();
+        for (File segmentFile : sortedByName(segmentFiles)) {
+            JournalReader reader = new JournalReader(segmentFile);
+            try {
+                while (reader.next(record)) {
+                    if (record.round != roundId) continue;
+                    if (record.type == RecordType.ROUND_START) round = new RecordedRound(record);
+                    else if (round != null) round.add(record);
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        if (round == null || !round.isEnded()) return null;
+        RoundReplayer replayer = new RoundReplayer();
+        replayer.setTranscriptEnabled(true);
+        String mismatch = replayer.replay(round);
+        return replayer.getTranscript() + (mismatch == null ? "Replay matches journal." : "Mismatch: " + mismatch);
+    }
+
+    /**
+     * @return segments of each writer, sorted by segment index
+     */
+    private static Map<String, List<File>> groupByWriter(List<File> segmentFiles) {
+        Map<String, List<File>> writers = new LinkedHashMap<String, List<File>>();
+        for (File segmentFile : sortedByName(segmentFiles)) {
+            String name = segmentFile.getName();
+            int end = name.lastIndexOf('-');
+            String writer = new File(segmentFile.getParentFile(), end > 0 ? name.substring(0, end) : name).getPath();
+            List<File> segments = writers.get(writer);
+            if (segments == null) {
+                segments = new ArrayList<File>();
+                writers.put(writer, segments);
+            }
+            segments.add(segmentFile);
+        }
+        return writers;
+    }
+
+    private static List<File> sortedByName(List<File> files) {
+        List<File> sorted = new ArrayList<File>(files);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    public long getReplayedRounds() {
+        return replayedRounds.sum();
+    }
+
+    public long getMismatchedRounds() {
+        return mismatchedRounds.sum();
+    }
+
+    public long getIncompleteRounds() {
+        return incompleteRounds.sum();
+    }
+
+    /**
+     * @return descriptions of first {@link JournalReplayer#MAX_REPORTED_MISMATCHES} mismatched rounds
+     */
+    public List<String> getMismatches() {
+        return new ArrayList<String>(mismatches);
+    }
+
+    /**
+     * Replays batch of rounds by worker's replayer.
+     */
+    private class BatchTask implements Runnable {
+
+        private final List<RecordedRound> rounds;
+
+        BatchTask(List<RecordedRound> rounds) {
+            this.rounds = rounds;
+        }
+
+        public void run() {
+            RoundReplayer replayer = replayers.get();
+            for (RecordedRound round : rounds) {
+                String mismatch = replayer.replay(round);
+                if (mismatch != null) {
+                    mismatchedRounds.increment();
+                    if (reportedMismatches.getAndIncrement() < MAX_REPORTED_MISMATCHES) {
+                        mismatches.add("Round " + round.getRound() + ": " + mismatch);
+                    }
+                }
+            }
+            replayedRounds.add(rounds.size());
+        }
+    }
+
+    /**
+     * Lists segment files in directory.
+     */
+    private static List<File> listSegments(File file) {
+        if (!file.isDirectory()) return Collections.singletonList(file);
+        File[] segments = file.listFiles();
+        List<File> result = new ArrayList<File>();
+        if (segments == null) return result;
+        for (File segment : segments) {
+            if (segment.getName().endsWith(JournalWriter.SUFFIX)) result.add(segment);
+        }
+        return result;
+    }
+
+    /**
+     * Parses command line arguments and replays journal.
+     *
+     * @param args must be in format: [--threads n] [--round id] segment files or journal directories.
+     *             With round id only that round is replayed and described - segments must be written by one writer
+     */
+    public static void main(String... args) throws IOException {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        Long roundId = null;
+        List<File> segmentFiles = new ArrayList<File>();
+        for (int index = 0; index < args.length; index++) {
+            if ("--threads".equals(args[index]) && index + 1 < args.length) {
+                parallelism = Integer.valueOf(args[++index]);
+            } else if ("--round".equals(args[index]) && index + 1 < args.length) {
+                roundId = Long.valueOf(args[++index]);
+            } else {
+                segmentFiles.addAll(listSegments(new File(args[index])));
+            }
+        }
+        if (segmentFiles.isEmpty()) {
+            System.err.println("You need to specify journal segment files or directories as arguments.");
+            return;
+        }
+        if (roundId != null) {
+            String description = describe(segmentFiles, roundId);
+            System.out.println(description != null ? description : "Round " + roundId + " isn't found.");
+            return;
+        }
+        JournalReplayer replayer = new JournalReplayer(parallelism);
+        long start = System.nanoTime();
+        replayer.replay(segmentFiles);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("Threads:      " + parallelism);
+        System.out.println("Segments:     " + segmentFiles.size());
+        System.out.println("Rounds:       " + replayer.getReplayedRounds());
+        System.out.println("Incomplete:   " + replayer.getIncompleteRounds());
+        System.out.println("Mismatches:   " + replayer.getMismatchedRounds());
+        System.out.println(String.format("Time:         %.3f s", seconds));
+        System.out.println(String.format("Rounds/sec:   %.0f", replayer.getReplayedRounds() / seconds));
+        for (String mismatch : replayer.getMismatches()) {
+            System.out.println(mismatch);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package blackjack.journal;
+
+import blackjack.cards.Card;
+import blackjack.cards.GameResult;
+import blackjack.cards.Hand;
+import blackjack.cards.PlayerDecision;
+import blackjack.server.ServerLog;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Append-only journal of rounds: every bet, dealt card, decision and settlement is written as fixed-size
+ * {@link JournalRecord} into memory-mapped segment file. Segment files are allocated at once with fixed size;
+ * when segment is full, journal rolls over to next one. Records are written directly into mapped memory,
+ * so writing allocates nothing. Slow file work never runs on game thread: one background thread, shared by all
+ * writers, forces segment to disk after each batch of rounds and on rollover, and creates next segment in advance,
+ * so rollover just switches to already mapped file. Segment is forced by caller only on close.
+ * <p>
+ * Writer isn't thread-safe: each table (or event loop) has its own writer; only {@link JournalWriter#close()}
+ * could be called by other thread, e.g. by shutdown hook. Segments of writer are named
+ * "name-000001.journal" and so on; new writer continues numbering after existing segments, so journal of
+ * previous run is never overwritten.
+ * <p>
+ * If segment can't be created, writer stops journaling and reports it once, so game goes on without journal.
+ * @author yevhen bilous
+ */
+public class JournalWriter implements Closeable {
+
+    public static final int MAGIC = 0x424A4A31;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+    public static final int DEFAULT_SEGMENT_RECORDS = 1 << 19;
+    public static final int DEFAULT_SYNC_ROUNDS = 100;
+    public static final String SUFFIX = ".journal";
+    /**
+     * Rule flag of round: dealer doesn't take cards, when player has blackjack (single-player game).
+     * At tables dealer always takes cards after players' turns.
+     */
+    public static final int DEALER_SKIPS_BLACKJACK = 1;
+
+    // forces segments and creates next ones for all writers
+    private static final ExecutorService io = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "journal-io");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Segment file, mapped to memory.
+     */
+    private static class Segment {
+        final RandomAccessFile file;
+        final MappedByteBuffer buffer;
+        final int index;
+
+        Segment(RandomAccessFile file, MappedByteBuffer buffer, int index) {
+            this.file = file;
+            this.buffer = buffer;
+            this.index = index;
+        }
+    }
+
+    private final File directory;
+    private final String name;
+    private final int segmentRecords;
+    private final int syncRounds;
+    private final AtomicBoolean syncPending = new AtomicBoolean();
+
+    private Segment current;
+    private MappedByteBuffer segment;
+    private Future<Segment> nextSegment;
+    private int position;
+    private long nextRound;
+    private int roundsSinceSync = 0;
+    private volatile boolean failed = false;
+
+    /**
+     * Creates writer and its first segment.
+     *
+     * @param directory      directory of segment files
+     * @param name           prefix of segment files' names, e.g. table's name
+     * @param segmentRecords amount of records in one segment
+     * @param syncRounds     amount of rounds, after which segment is forced to disk
+     * @throws IOException if segment can't be created
+     */
+    public JournalWriter(File directory, String name, int segmentRecords, int syncRounds) throws IOException {
+        this.directory = directory;
+        this.name = name;
+        this.segmentRecords = segmentRecords;
+        this.syncRounds = syncRounds;
+        // round ids of different runs don't intersect, unless writer started more than 1000 rounds per millisecond
+        this.nextRound = System.currentTimeMillis() * 1000;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create journal directory " + directory);
+        }
+        activate(createSegment(lastSegmentIndex() + 1));
+    }
+
+    public JournalWriter(File directory, String name) throws IOException {
+        this(directory, name, DEFAULT_SEGMENT_RECORDS, DEFAULT_SYNC_ROUNDS);
+    }
+
+    /**
+     * @param directory directory of segment files
+     * @param name      prefix of segment files' names
+     * @param index     segment's index, starting from 1
+     * @return segment file
+     */
+    public static File segmentFile(File directory, String name, int index) {
+        return new File(directory, String.format("%s-%06d%s", name, index, SUFFIX));
+    }
+
+    /**
+     * Starts new round.
+     *
+     * @param players amount of players in round
+     * @return round id, which must be passed to all records of this round
+     */
+    public long roundStarted(int players) {
+        return roundStarted(players, 0);
+    }
+
+    /**
+     * Starts new round, which is played by specified rules, so it could be replayed by {@link RoundReplayer}.
+     *
+     * @param players amount of players in round
+     * @param rules   rule flags, e.g. {@link JournalWriter#DEALER_SKIPS_BLACKJACK}
+     * @return round id, which must be passed to all records of this round
+     */
+    public long roundStarted(int players, int rules) {
+        long round = nextRound++;
+        append(RecordType.ROUND_START, round, 0, rules, players, 0);
+        return round;
+    }
+
+    public void bet(long round, int box, int bet) {
+        append(RecordType.BET, round, box, 0, bet, 0);
+    }
+
+    public void satOut(long round, int box) {
+        append(RecordType.SIT_OUT, round, box, 0, 0, 0);
+    }
+
+    /**
+     * Records shoe, from which round is dealt, so round could be replayed by
+     * {@link blackjack.cards.ArrayShoe#restore(long, int)}.
+     */
+    public void shoe(long round, long seed, int dealtCount, int decksCount) {
+        append(RecordType.SHOE, round, 0, decksCount, dealtCount, seed);
+    }
+
+    public void card(long round, int box, Card card) {
+        append(RecordType.CARD, round, box, card.ordinal(), 0, 0);
+    }
+
+    /**
+     * Records cards of hand, starting from specified card.
+     *
+     * @param from index of first card, which wasn't recorded yet
+     */
+    public void cards(long round, int box, Hand hand, int from) {
+        for (int index = from; index < hand.getCardsCount(); index++) {
+            card(round, box, hand.getCard(index));
+        }
+    }
+
+    public void decision(long round, int box, PlayerDecision decision, boolean automatic) {
+        append(RecordType.DECISION, round, box, decision.ordinal(), automatic ? 1 : 0, 0);
+    }
+
+    public void settlement(long round, int box, GameResult result, int net, int money) {
+        append(RecordType.SETTLEMENT, round, box, result.ordinal(), net, money);
+    }
+
+    public void left(long round, int box) {
+        append(RecordType.LEAVE, round, box, 0, 0, 0);
+    }
+
+    /**
+     * Ends round; after each batch of rounds segment is forced to disk in background.
+     *
+     * @param abandoned true, if round was abandoned, because all players left
+     */
+    public void roundEnded(long round, boolean abandoned) {
+        append(RecordType.ROUND_END, round, 0, 0, abandoned ? 1 : 0, 0);
+        if (++roundsSinceSync >= syncRounds) sync();
+    }
+
+    /**
+     * Makes background thread force written records to disk. If previous sync isn't done yet, records
+     * will be forced by next one.
+     */
+    public void sync() {
+        roundsSinceSync = 0;
+        if (failed || !syncPending.compareAndSet(false, true)) return;
+        final MappedByteBuffer buffer = segment;
+        io.execute(new Runnable() {
+            public void run() {
+                syncPending.set(false);
+                force(buffer);
+            }
+        });
+    }
+
+    /**
+     * Forces written records to disk by caller's thread and closes current segment. Segment, which was created
+     * in advance, is deleted. Writer writes nothing after this call.
+     */
+    public synchronized void close() {
+        if (failed) return;
+        failed = true;
+        closeSegment(current);
+        Segment next = takeNextSegment();
+        if (next != null) {
+            closeSegment(next);
+            if (!segmentFile(directory, name, next.index).delete()) {
+                ServerLog.warn("unable to delete unused journal segment", name);
+            }
+        }
+    }
+
+    private void append(RecordType type, long round, int box, int code, int amount, long value) {
+        if (failed) return;
+        if (position == segment.capacity() && !rollOver()) return;
+        segment.put(position + 1, (byte) box);
+        segment.putShort(position + 2, (short) code);
+        segment.putInt(position + 4, amount);
+        segment.putLong(position + 8, System.currentTimeMillis());
+        segment.putLong(position + 16, round);
+        segment.putLong(position + 24, value);
+        // type is written last: record with type is complete
+        segment.put(position, type.getCode());
+        position += JournalRecord.SIZE;
+    }
+
+    /**
+     * Switches to segment, which was created in advance; full segment is forced and closed in background.
+     */
+    private synchronized boolean rollOver() {
+        if (failed) return false;
+        final Segment full = current;
+        Segment next = takeNextSegment();
+        if (next == null) {
+            failed = true;
+            closeSegment(full);
+            return false;
+        }
+        io.execute(new Runnable() {
+            public void run() {
+                closeSegment(full);
+            }
+        });
+        activate(next);
+        return true;
+    }
+
+    /**
+     * Starts writing into segment, marking it with start time, and creates next segment in background.
+     */
+    private void activate(Segment next) {
+        current = next;
+        segment = next.buffer;
+        segment.putLong(16, System.currentTimeMillis());
+        position = HEADER_SIZE;
+        roundsSinceSync = 0;
+        final int index = next.index + 1;
+        nextSegment = io.submit(new Callable<Segment>() {
+            public Segment call() throws IOException {
+                return createSegment(index);
+            }
+        });
+    }
+
+    /**
+     * Waits for segment, which is created in advance; usually it's ready long before it's needed.
+     *
+     * @return segment, or null if it can't be created - then journal is stopped
+     */
+    private Segment takeNextSegment() {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return nextSegment.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            ServerLog.error("journal is stopped, because segment can't be created", e.getCause());
+            return null;
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    private Segment createSegment(int index) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(segmentFile(directory, name, index), "rw");
+        try {
+            long size = HEADER_SIZE + (long) segmentRecords * JournalRecord.SIZE;
+            // file is extended at once, so it's filled by zeros, i.e. empty records
+            file.setLength(size);
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            // segment, which was created in advance, but wasn't used because of crash, is read as empty one
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, JournalRecord.SIZE);
+            buffer.putInt(12, index);
+            return new Segment(file, buffer, index);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private static void closeSegment(Segment segment) {
+        force(segment.buffer);
+        try {
+            segment.file.close();
+        } catch (IOException e) {
+            ServerLog.warn("unable to close journal segment", e);
+        }
+    }
+
+    private static void force(MappedByteBuffer buffer) {
+        try {
+            buffer.force();
+        } catch (RuntimeException e) {
+            ServerLog.error("unable to force journal segment", e);
+        }
+    }
+
+    private int lastSegmentIndex() {
+        int index = 0;
+        while (segmentFile(directory, name, index + 1).exists()) index++;
+        return index;
+    }
+}
@@ -0,0 +1,75 @@
+package blackjack.journal;
+
+/**
+ * Types of {@link JournalRecord}s. Record's fields, which are used by each type, are described by its constant;
+ * unused fields are 0. Box 0 means dealer or whole table, players' boxes start from 1.
+ * Type code 0 is never used, because empty part of segment is filled with zeros.
+ * @author yevhen bilous
+ */
+public enum RecordType {
+    /**
+     * Round started: round id; amount - amount of players in round.
+     */
+    ROUND_START(1),
+    /**
+     * Player made bet: box; amount - bet.
+     */
+    BET(2),
+    /**
+     * Player didn't bet in time and sits out the round: box.
+     */
+    SIT_OUT(3),
+    /**
+     * Shoe, from which round is dealt: value - shuffle seed; amount - count of cards, dealt before round;
+     * code - amount of decks.
+     */
+    SHOE(4),
+    /**
+     * Card was dealt: box (0 for dealer); code - {@link blackjack.cards.Card} ordinal.
+     */
+    CARD(5),
+    /**
+     * Player made decision: box; code - {@link blackjack.cards.PlayerDecision} ordinal; amount is 1, if decision
+     * was made automatically, because player didn't answer in time.
+     */
+    DECISION(6),
+    /**
+     * Bet was settled: box; code - {@link blackjack.cards.GameResult} ordinal; amount - net; value - player's
+     * money after settlement.
+     */
+    SETTLEMENT(7),
+    /**
+     * Player left table during round: box.
+     */
+    LEAVE(8),
+    /**
+     * Round ended: amount is 1, if round was abandoned, because all players left.
+     */
+    ROUND_END(9);
+
+    private static final RecordType[] BY_CODE = new RecordType[16];
+
+    static {
+        for (RecordType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final byte code;
+
+    RecordType(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * @param code type's code, written in journal
+     * @return type, or null if code is unknown (0 means end of records)
+     */
+    public static RecordType fromCode(int code) {
+        return code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
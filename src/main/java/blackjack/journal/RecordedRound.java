@@ -0,0 +1,92 @@
+package blackjack.journal;
+
+import java.util.Arrays;
+
+/**
+ * One round, collected from journal records: shoe, from which round was dealt, and all records between round's
+ * start and end in order they were written. Records are packed into int array, so round takes a few small
+ * arrays regardless of amount of records.
+ * @author yevhen bilous
+ */
+public class RecordedRound {
+
+    long round;
+    int rules;
+    int players;
+    boolean shoeRecorded = false;
+    long seed;
+    int dealtCount;
+    int decksCount;
+    boolean ended = false;
+    boolean abandoned = false;
+    // each record takes two ints: type code, box and code packed in first one, amount in second one
+    int[] records = new int[32];
+    int recordsCount = 0;
+
+    /**
+     * @param start ROUND_START record
+     */
+    RecordedRound(JournalRecord start) {
+        round = start.round;
+        rules = start.code;
+        players = start.amount;
+    }
+
+    /**
+     * Adds record of this round.
+     */
+    void add(JournalRecord record) {
+        switch (record.type) {
+            case SHOE: {
+                shoeRecorded = true;
+                seed = record.value;
+                dealtCount = record.amount;
+                decksCount = record.code;
+                break;
+            }
+            case ROUND_END: {
+                ended = true;
+                abandoned = record.amount == 1;
+                break;
+            }
+            default: {
+                if (recordsCount * 2 == records.length) records = Arrays.copyOf(records, records.length * 2);
+                records[recordsCount * 2] = record.type.getCode() << 24 | record.box << 16 | record.code;
+                records[recordsCount * 2 + 1] = record.amount;
+                recordsCount++;
+                break;
+            }
+        }
+    }
+
+    RecordType getType(int index) {
+        return RecordType.fromCode((byte) (records[index * 2] >>> 24));
+    }
+
+    int getBox(int index) {
+        return records[index * 2] >>> 16 & 0xFF;
+    }
+
+    int getCode(int index) {
+        return records[index * 2] & 0xFFFF;
+    }
+
+    int getAmount(int index) {
+        return records[index * 2 + 1];
+    }
+
+    public long getRound() {
+        return round;
+    }
+
+    /**
+     * @return true, if round was dealt, i.e. it has cards to replay
+     */
+    public boolean isDealt() {
+        return shoeRecorded;
+    }
+
+    public boolean isEnded() {
+        return ended;
+    }
+}
@@ -0,0 +1,276 @@
+package blackjack.journal;
+
+import blackjack.cards.ArrayShoe;
+import blackjack.cards.Card;
+import blackjack.cards.GameResult;
+import blackjack.cards.Hand;
+import blackjack.cards.PlayerDecision;
+import blackjack.client.HandOwner;
+
+import java.util.Arrays;
+
+/**
+ * Plays recorded round once again without server and players: shoe is restored from recorded seed and
+ * dealt cards count, recorded decisions are applied to hands in the same order, as server applied them,
+ * and dealer takes cards by the same policy. Then replayed cards and settlements are compared with recorded
+ * ones, so journal proves round outcome (or shows where game logic and journal differ).
+ * <p>
+ * Replayer reuses its shoe, hands and arrays for all rounds, so it must be used by one thread only.
+ * Consecutive rounds, dealt from the same shoe, don't even restore shoe - replayer just goes on dealing.
+ * @author yevhen bilous
+ */
+public class RoundReplayer {
+
+    private static final int MAX_BOXES = 256;
+    private static final Card[] CARDS = Card.values();
+    private static final PlayerDecision[] DECISIONS = PlayerDecision.values();
+    private static final GameResult[] RESULTS = GameResult.values();
+
+    private ArrayShoe shoe = null;
+    private final Hand dealerHand = new Hand();
+    private final Hand[] hands = new Hand[MAX_BOXES];
+    private final int[] bets = new int[MAX_BOXES];
+    private final boolean[] dealt = new boolean[MAX_BOXES];
+    private final boolean[] left = new boolean[MAX_BOXES];
+    private final boolean[] settled = new boolean[MAX_BOXES];
+    // boxes and codes of replayed cards in order they were dealt
+    private int[] drawnBoxes = new int[64];
+    private int[] drawnCards = new int[64];
+    private int drawnCount;
+    private StringBuilder transcript = null;
+
+    /**
+     * Makes replayer describe next replayed rounds, see {@link RoundReplayer#getTranscript()}.
+     * Transcript slows replay down, so it's meant for single disputed rounds.
+     *
+     * @param enabled true, if rounds must be described
+     */
+    public void setTranscriptEnabled(boolean enabled) {
+        transcript = enabled ? new StringBuilder() : null;
+    }
+
+    /**
+     * @return description of last replayed round: shoe, bets, decisions and final cards, or null if transcript
+     * isn't enabled
+     */
+    public String getTranscript() {
+        return transcript != null ? transcript.toString() : null;
+    }
+
+    /**
+     * Replays round and checks it against its records.
+     *
+     * @param round complete round, see {@link RecordedRound#isEnded()}
+     * @return null, if replayed cards and settlements are the same as recorded, otherwise description of
+     * first difference
+     */
+    public String replay(RecordedRound round) {
+        if (transcript != null) transcript.setLength(0);
+        if (!round.isDealt()) return checkUndealt(round);
+        String failure = prepareShoe(round);
+        if (failure != null) return failure;
+        Arrays.fill(dealt, false);
+        Arrays.fill(left, false);
+        Arrays.fill(settled, false);
+        drawnCount = 0;
+
+        // boxes, which made bets and didn't leave before cards were dealt, take part in round
+        int shoeIndex = 0;
+        int boxesCount = 0;
+        int decisionsIndex = round.recordsCount;
+        for (int index = 0; index < round.recordsCount; index++) {
+            int box = round.getBox(index);
+            RecordType type = round.getType(index);
+            if (type == RecordType.CARD || type == RecordType.DECISION) {
+                decisionsIndex = index;
+                break;
+            }
+            if (type == RecordType.BET) {
+                dealt[box] = true;
+                bets[box] = round.getAmount(index);
+                boxesCount = Math.max(boxesCount, box + 1);
+            } else if (type == RecordType.SIT_OUT || type == RecordType.LEAVE) {
+                dealt[box] = false;
+            }
+        }
+        if (transcript != null) {
+            transcript.append("Round ").append(round.getRound()).append(": decks ").append(shoe.getDecksCount())
+                    .append(", seed ").append(round.seed).append(", dealt cards ").append(round.dealtCount)
+                    .append('\n');
+            for (int box = 1; box < boxesCount; box++) {
+                if (dealt[box]) transcript.append("Box ").append(box).append(" bet ").append(bets[box]).append('\n');
+            }
+        }
+
+        // dealer takes one card, then each box takes two cards
+        dealerHand.clear();
+        if (!draw(dealerHand, 0)) return "Shoe is empty";
+        boolean allBlackjacks = true;
+        for (int box = 1; box < boxesCount; box++) {
+            if (!dealt[box]) continue;
+            if (hands[box] == null) hands[box] = new Hand();
+            hands[box].clear();
+            if (!draw(hands[box], box) || !draw(hands[box], box)) return "Shoe is empty";
+            allBlackjacks &= hands[box].isBlackjack();
+        }
+
+        // decisions are applied in order they were journaled
+        for (int index = decisionsIndex; index < round.recordsCount; index++) {
+            int box = round.getBox(index);
+            switch (round.getType(index)) {
+                case DECISION: {
+                    if (!dealt[box] || left[box]) return "Decision of box " + box + ", which isn't in round";
+                    PlayerDecision decision = DECISIONS[round.getCode(index)];
+                    if (transcript != null) {
+                        transcript.append("Box ").append(box).append(' ').append(decision);
+                        if (round.getAmount(index) == 1) transcript.append(" (automatic)");
+                        transcript.append('\n');
+                    }
+                    if (decision == PlayerDecision.DOUBLE) bets[box] *= 2;
+                    if (decision != PlayerDecision.STAND && !draw(hands[box], box)) return "Shoe is empty";
+                    break;
+                }
+                case LEAVE: {
+                    left[box] = true;
+                    if (transcript != null) transcript.append("Box ").append(box).append(" left\n");
+                    break;
+                }
+                default:
+                    break;
+            }
+        }
+
+        // dealer takes cards, unless round was abandoned or dealer doesn't need cards against blackjacks
+        boolean skipsDealer = round.abandoned || allBlackjacks && boxesCount > 0
+                && (round.rules & JournalWriter.DEALER_SKIPS_BLACKJACK) != 0;
+        if (!skipsDealer) {
+            while (!dealerHand.reachesDealerHit()) {
+                if (!draw(dealerHand, 0)) return "Shoe is empty";
+            }
+        }
+        if (transcript != null) {
+            transcript.append(HandOwner.DEALER.format(dealerHand)).append('\n');
+            for (int box = 1; box < boxesCount; box++) {
+                if (dealt[box]) transcript.append("Box ").append(box).append(' ')
+                        .append(HandOwner.PLAYER.format(hands[box])).append('\n');
+            }
+        }
+        return compare(round);
+    }
+
+    /**
+     * Checks round, which has no cards. Round, which was abandoned before dealing, because nobody bet in time
+     * or last bettors left, may have bets, sit outs and leaves.
+     */
+    private static String checkUndealt(RecordedRound round) {
+        if (round.recordsCount == 0) return null;
+        if (!round.abandoned) return "Round wasn't dealt, but has records";
+        for (int index = 0; index < round.recordsCount; index++) {
+            RecordType type = round.getType(index);
+            if (type != RecordType.BET && type != RecordType.SIT_OUT && type != RecordType.LEAVE) {
+                return "Round wasn't dealt, but has " + type + " record of box " + round.getBox(index);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compares replayed cards with recorded ones and recorded settlements with replayed hands.
+     */
+    private String compare(RecordedRound round) {
+        int cardIndex = 0;
+        for (int index = 0; index < round.recordsCount; index++) {
+            int box = round.getBox(index);
+            switch (round.getType(index)) {
+                case CARD: {
+                    if (cardIndex == drawnCount) {
+                        return "Card " + (cardIndex + 1) + " " + CARDS[round.getCode(index)] + " of box " + box
+                                + " was recorded, but not dealt by replay";
+                    }
+                    if (drawnBoxes[cardIndex] != box || drawnCards[cardIndex] != round.getCode(index)) {
+                        return "Card " + (cardIndex + 1) + ": recorded " + CARDS[round.getCode(index)] + " of box "
+                                + box + ", replayed " + CARDS[drawnCards[cardIndex]] + " of box "
+                                + drawnBoxes[cardIndex];
+                    }
+                    cardIndex++;
+                    break;
+                }
+                case SETTLEMENT: {
+                    if (!dealt[box] || left[box] || settled[box]) {
+                        return "Settlement of box " + box + ", which isn't in round";
+                    }
+                    settled[box] = true;
+                    Hand hand = hands[box];
+                    GameResult result = hand.isBlackjack() ? GameResult.PLAYER_BLACKJACK
+                            : GameResult.resolve(hand, dealerHand);
+                    int net = result.getNet(bets[box]);
+                    GameResult recordedResult = RESULTS[round.getCode(index)];
+                    if (transcript != null) {
+                        transcript.append("Box ").append(box).append(' ').append(result).append(" net ")
+                                .append(net).append('\n');
+                    }
+                    if (result != recordedResult || net != round.getAmount(index)) {
+                        return "Box " + box + ": recorded " + recordedResult + " net " + round.getAmount(index)
+                                + ", replayed " + result + " net " + net;
+                    }
+                    break;
+                }
+                default:
+                    break;
+            }
+        }
+        if (cardIndex < drawnCount) {
+            return "Card " + (cardIndex + 1) + " " + CARDS[drawnCards[cardIndex]] + " of box "
+                    + drawnBoxes[cardIndex] + " was dealt by replay, but not recorded";
+        }
+        if (!round.abandoned) {
+            for (int box = 1; box < MAX_BOXES; box++) {
+                if (dealt[box] && !left[box] && !settled[box]) return "Bet of box " + box + " wasn't settled";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Restores recorded shoe state. If the same shoe was left by previous round just where this round starts
+     * (or before it), shoe isn't reshuffled - missing cards are just dealt.
+     */
+    private String prepareShoe(RecordedRound round) {
+        int decksCount = round.decksCount;
+        if (decksCount == 0 || round.dealtCount < 0 || round.dealtCount >= decksCount * ArrayShoe.DECK_SIZE) {
+            return "Invalid shoe: decks " + decksCount + ", dealt cards " + round.dealtCount;
+        }
+        if (shoe == null || shoe.getDecksCount() != decksCount) {
+            shoe = new ArrayShoe(decksCount, false);
+            shoe.restore(round.seed, round.dealtCount);
+            return null;
+        }
+        if (shoe.getShuffleSeed() != round.seed || shoe.getDealtCount() > round.dealtCount) {
+            shoe.restore(round.seed, round.dealtCount);
+            return null;
+        }
+        while (shoe.getDealtCount() < round.dealtCount) {
+            shoe.retrieveUpperCard();
+        }
+        return null;
+    }
+
+    /**
+     * Deals next card of shoe to hand and remembers it for comparison.
+     *
+     * @return false, if shoe is empty
+     */
+    private boolean draw(Hand hand, int box) {
+        Card card = shoe.retrieveUpperCard();
+        if (card == null) return false;
+        hand.receiveCard(card);
+        if (drawnCount == drawnBoxes.length) {
+            drawnBoxes = Arrays.copyOf(drawnBoxes, drawnCount * 2);
+            drawnCards = Arrays.copyOf(drawnCards, drawnCount * 2);
+        }
+        drawnBoxes[drawnCount] = box;
+        drawnCards[drawnCount] = card.ordinal();
+        drawnCount++;
+        return true;
+    }
+}
@@ -0,0 +1,76 @@
+package blackjack.metrics;
+
+/**
+ * Histogram of latencies in nanoseconds with fixed memory footprint. Small values are counted exactly, bigger
+ * ones are counted in log-linear buckets: each power of two is divided into {@link LatencyHistogram#SUB_COUNT}
+ * buckets, so percentiles are reported with about 3% precision.
+ * Histogram isn't thread-safe: each thread records its own histogram, then histograms are added together.
+ * @author yevhen bilous
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB_COUNT];
+    private long totalCount = 0;
+    private long max = 0;
+
+    /**
+     * @param value latency in nanoseconds; negative values are counted as 0
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts[bucketIndex(value)]++;
+        totalCount++;
+        if (value > max) max = value;
+    }
+
+    /**
+     * Adds all values, recorded by other histogram, to this one.
+     */
+    public void add(LatencyHistogram other) {
+        for (int index = 0; index < counts.length; index++) {
+            counts[index] += other.counts[index];
+        }
+        totalCount += other.totalCount;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @param percentile percentile in (0, 100]
+     * @return value, which isn't exceeded by given percent of recorded values, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        if (totalCount == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long count = 0;
+        for (int index = 0; index < counts.length; index++) {
+            count += counts[index];
+            if (count >= rank) return Math.min(bucketHighValue(index), max);
+        }
+        return max;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_COUNT) return (int) value;
+        // value >> shift is in [SUB_COUNT, 2 * SUB_COUNT)
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_COUNT + (int) (value >> shift) - SUB_COUNT;
+    }
+
+    private static long bucketHighValue(int index) {
+        if (index < SUB_COUNT) return index;
+        int shift = index / SUB_COUNT - 1;
+        long low = (long) (SUB_COUNT + index % SUB_COUNT) << shift;
+        return low + (1L << shift) - 1;
+    }
+}
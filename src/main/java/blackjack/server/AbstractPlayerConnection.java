@@ -0,0 +1,72 @@
+package blackjack.server;
+
+import blackjack.cards.Hand;
+import blackjack.client.AmountKind;
+import blackjack.client.BinaryProtocol;
+import blackjack.client.ClientMode;
+import blackjack.client.HandOwner;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Common part of player's connections: encodes messages in text protocol or, after client's request,
+ * in {@link BinaryProtocol}. Each message is encoded into reusable buffer and passed to
+ * {@link AbstractPlayerConnection#write(ByteBuffer)}, so subclasses deal only with bytes.
+ * @author yevhen bilous
+ */
+public abstract class AbstractPlayerConnection implements PlayerConnection {
+
+    protected final ByteBuffer frameBuffer = ByteBuffer.allocate(BinaryProtocol.MAX_FRAME_SIZE);
+    protected boolean binary = false;
+
+    public void sendMessage(ClientMode mode, String... messages) {
+        frameBuffer.clear();
+        if (binary) BinaryProtocol.putText(frameBuffer, mode, messages);
+        else frameBuffer.put(AbstractPlayerHandler.formatMessage(mode, messages).getBytes(StandardCharsets.UTF_8));
+        frameBuffer.flip();
+        write(frameBuffer);
+    }
+
+    public void sendCards(ClientMode mode, HandOwner owner, Hand hand) {
+        if (!binary) {
+            sendMessage(mode, owner.format(hand));
+            return;
+        }
+        frameBuffer.clear();
+        BinaryProtocol.putCards(frameBuffer, mode, owner, hand);
+        frameBuffer.flip();
+        write(frameBuffer);
+    }
+
+    public void sendAmount(ClientMode mode, AmountKind kind, int amount) {
+        if (!binary) {
+            sendMessage(mode, kind.format(amount));
+            return;
+        }
+        frameBuffer.clear();
+        BinaryProtocol.putAmount(frameBuffer, mode, kind, amount);
+        frameBuffer.flip();
+        write(frameBuffer);
+    }
+
+    /**
+     * Checks if received text message is request to switch to binary protocol, and switches if it is.
+     *
+     * @param message text message, received from player
+     * @return true, if message was protocol upgrade request and must not be passed to game logic
+     */
+    protected boolean upgradeRequested(String message) {
+        if (binary || !BinaryProtocol.UPGRADE_REQUEST.equals(message)) return false;
+        binary = true;
+        return true;
+    }
+
+    /**
+     * Writes encoded message. Buffer is reused for next message, so its content must be written
+     * or copied before method returns.
+     *
+     * @param frame buffer, positioned at message start and limited by message end
+     */
+    protected abstract void write(ByteBuffer frame);
+}
@@ -0,0 +1,939 @@
+package blackjack.server;
+
+import blackjack.cards.ArrayShoe;
+import blackjack.cards.GameResult;
+import blackjack.cards.Hand;
+import blackjack.cards.PlayerDecision;
+import blackjack.cards.ShoePool;
+import blackjack.client.AmountKind;
+import blackjack.client.BlackjackClient;
+import blackjack.client.ClientMode;
+import blackjack.client.HandOwner;
+import blackjack.journal.JournalWriter;
+import blackjack.simulation.BasicStrategy;
+import blackjack.wallet.Account;
+import blackjack.wallet.Wallet;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One blackjack table of {@link MultiplePlayerServer}. Table has its own shoe and dealer's hand and plays
+ * rounds one after another. Round is a state machine: players are waited for, then bets are made, then players
+ * take cards in turn, then dealer takes cards and bets are settled. Table moves from one state to another only
+ * on player's messages, disconnects and timer, so nobody's thread waits for other players.
+ * Table and all its players' connections are served by one {@link NioEventLoop}, so all table's methods
+ * (except {@link GameTable#open()} and {@link GameTable#offerPlayer(LobbySession)}) are called by loop's thread
+ * and table needs no synchronization.
+ * Round starts as soon as all boxes are occupied, or when at least minimal amount of players is seated and
+ * maximal wait time since first player's arrival is over.
+ * Bets and decisions have deadlines, so one slow player can't stall the table: player, who didn't bet in time,
+ * sits out the round, and player, who didn't make decision in time, stands. Deadlines are kept by timer, shared
+ * by all loops, and are counted in {@link TableMetrics}. Durations of round's phases are recorded there too.
+ * Optionally players take cards concurrently: all boxes are asked for decisions at once and dealer takes cards
+ * when every box is done. Decisions are still applied by loop's thread one at a time, so cards are dealt in order
+ * of players' messages; this order is logged with shoe's seed, so each round could be audited.
+ * If table has {@link JournalWriter}, every bet, dealt card, decision and settlement is journaled.
+ * Seats are kept between rounds: after bets are settled each player is asked for another round and keeps his box,
+ * connection and money. Only players, who agreed, take part in next round; player, who refused or ran out of money,
+ * leaves the table. Table's shoe is kept as well and is dealt until its cut card.
+ * Bet is taken from player's account when it's made and bet with win is returned to account on settlement,
+ * so player, who leaves during round, loses his bet. If table has {@link Wallet}, player could identify himself
+ * by {@link BlackjackClient#PLAYER_ID_PREFIX} message while he has no bet in round: then he plays with money
+ * of his account in wallet, which is kept between connections.
+ * If table has {@link SessionRegistry}, player, whose connection was lost, keeps his box, hand and bet during
+ * grace period: he reconnects and sends his session's token, which is received in lobby (see
+ * {@link LobbySession}) or by table, if he is seated already, then his connection is passed to his session and
+ * table resends him current state of round. Round doesn't wait for detached player longer than its deadlines,
+ * and detached player doesn't take part in next rounds until he comes back.
+ *
+ * @author yevhen bilous
+ */
+public class GameTable implements SessionFactory, GameTableMXBean {
+
+    public static final long DEFAULT_BET_TIMEOUT_MILLIS = 30000;
+    public static final long DEFAULT_ACTION_TIMEOUT_MILLIS = 30000;
+
+    /**
+     * States of table, in which it waits for some event.
+     */
+    enum State {
+        WAITING, BETTING, PLAYER_TURNS
+    }
+
+    /**
+     * Deadlines, which are kept by table's timer.
+     */
+    enum Deadline {
+        ROUND_START, BET, ACTION
+    }
+
+    private final int tableIndex;
+    private final NioEventLoop eventLoop;
+    private final Lobby lobby;
+    private final int maxBoxes;
+    private final int minPlayers;
+    private final long maxWaitMillis;
+    private final ShoePool shoePool;
+    private final TableMetrics metrics;
+    private final TableSession[] boxes;
+    private final Hand dealerHand = new Hand();
+    protected int playerMoney = 100;
+    protected int minimalBet = 1;
+    private long betTimeoutMillis = DEFAULT_BET_TIMEOUT_MILLIS;
+    private long actionTimeoutMillis = DEFAULT_ACTION_TIMEOUT_MILLIS;
+    private boolean concurrentTurns = false;
+    private JournalWriter journal = null;
+    private Wallet wallet = null;
+    private SessionRegistry sessionRegistry = null;
+    private BasicStrategy advisor = null;
+
+    private ArrayShoe shoe;
+    private State state = State.WAITING;
+    private int seatedCount = 0;
+    private int reservedCount = 0;
+    private int currentBox = -1;
+    private ScheduledFuture<?> timer = null;
+    private int timerNumber = 0;
+    private boolean registrationTimeIsOver = false;
+    // boxes' numbers in order of cards, which were taken by players in concurrent turns
+    private final StringBuilder drawOrder = new StringBuilder();
+    private volatile long roundsPlayed = 0;
+    private final RateMeter roundsRate = new RateMeter();
+    // start of waiting for round start or for bets, 0 if table doesn't wait
+    private long phaseStartTime = 0;
+    // id of current round in journal
+    private long round = 0;
+
+    /**
+     * @param tableIndex    table's number, used in logs
+     * @param eventLoop     loop, which serves table and its players
+     * @param lobby         lobby, from which table takes players
+     * @param maxBoxes      maximal amount of players in one round; round starts immediately when all boxes
+     *                      are occupied
+     * @param minPlayers    minimal amount of players, with which round could start before all boxes
+     *                      are occupied
+     * @param maxWaitMillis time since first player's arrival, after which round starts with at least
+     *                      minimal amount of players
+     * @param shoePool      pool of shuffled shoes, may be null - then table uses its own shoe
+     * @param metrics       counters, shared by tables
+     */
+    public GameTable(int tableIndex, NioEventLoop eventLoop, Lobby lobby, int maxBoxes, int minPlayers,
+                     long maxWaitMillis, ShoePool shoePool, TableMetrics metrics) {
+        if (minPlayers < 1 || minPlayers > maxBoxes) {
+            throw new IllegalArgumentException("Minimal amount of players must be in [1, " + maxBoxes + "]: "
+                    + minPlayers);
+        }
+        this.tableIndex = tableIndex;
+        this.eventLoop = eventLoop;
+        this.lobby = lobby;
+        this.maxBoxes = maxBoxes;
+        this.minPlayers = minPlayers;
+        this.maxWaitMillis = maxWaitMillis;
+        this.shoePool = shoePool;
+        this.metrics = metrics;
+        this.boxes = new TableSession[maxBoxes];
+        this.shoe = shoePool != null ? shoePool.acquire() : new ArrayShoe(6, true);
+    }
+
+    /**
+     * Sets deadlines for player's bet and for each player's decision. Must be called before
+     * {@link GameTable#open()}.
+     *
+     * @param betTimeoutMillis    time since round start, during which player must make bet
+     * @param actionTimeoutMillis time since decision request, during which player must make decision
+     */
+    public void setTimeouts(long betTimeoutMillis, long actionTimeoutMillis) {
+        this.betTimeoutMillis = betTimeoutMillis;
+        this.actionTimeoutMillis = actionTimeoutMillis;
+    }
+
+    /**
+     * Switches concurrent turns mode: all players make decisions at once instead of waiting for their turns.
+     * In this mode action timeout limits the whole players' turns. Must be called before {@link GameTable#open()}.
+     *
+     * @param concurrentTurns true, if players take cards concurrently
+     */
+    public void setConcurrentTurns(boolean concurrentTurns) {
+        this.concurrentTurns = concurrentTurns;
+    }
+
+    /**
+     * Sets journal of table's rounds. Journal is used only by table's loop thread. Must be called before
+     * {@link GameTable#open()}.
+     *
+     * @param journal journal writer of this table, may be null - then rounds aren't journaled
+     */
+    public void setJournal(JournalWriter journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Sets wallet of identified players' accounts. Must be called before {@link GameTable#open()}.
+     *
+     * @param wallet wallet, shared by tables, may be null - then all players play with their own
+     *               {@link GameTable#playerMoney}, which is lost when they leave
+     */
+    public void setWallet(Wallet wallet) {
+        this.wallet = wallet;
+    }
+
+    /**
+     * Lets players resume their sessions after connection loss. Must be called before {@link GameTable#open()}.
+     *
+     * @param sessionRegistry registry, shared by tables, may be null - then player, who lost connection, leaves
+     */
+    public void setSessionRegistry(SessionRegistry sessionRegistry) {
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    /**
+     * Lets players ask for hints instead of decisions. Must be called before {@link GameTable#open()}.
+     *
+     * @param advisor strategy, shared by tables, may be null - then hints aren't available
+     */
+    public void setAdvisor(BasicStrategy advisor) {
+        this.advisor = advisor;
+    }
+
+    /**
+     * Opens table for players. Could be called from any thread.
+     */
+    public void open() {
+        eventLoop.execute(new Runnable() {
+            public void run() {
+                openRegistration();
+            }
+        });
+    }
+
+    /**
+     * Passes player from lobby to this table. Could be called from any thread. If table has already started
+     * round, or has no free boxes, player is returned to lobby.
+     *
+     * @param player session of player, who waits in lobby
+     */
+    void offerPlayer(final LobbySession player) {
+        eventLoop.execute(new Runnable() {
+            public void run() {
+                seat(player);
+            }
+        });
+    }
+
+    /**
+     * Creates session for player, whose channel was registered by table. Player occupies first free box.
+     */
+    public PlayerSession createSession(PlayerConnection connection) {
+        reservedCount--;
+        int boxIndex = 0;
+        while (boxes[boxIndex] != null) boxIndex++;
+        String token = sessionRegistry != null ? sessionRegistry.newToken() : null;
+        TableSession session = new TableSession(this, connection, boxIndex, Account.anonymous(playerMoney), token);
+        boxes[boxIndex] = session;
+        seatedCount++;
+        return session;
+    }
+
+    void onJoin(TableSession session) {
+        ServerLog.info("player joined", "table", tableIndex, "box", session.boxIndex + 1);
+        session.connection.sendMessage(ClientMode.CLIENT_RECEIVE, AbstractPlayerHandler.greetings + minimalBet + "$;",
+                "Your money: " + session.account.getBalance() + "\n");
+        if (session.token != null) {
+            session.connection.sendMessage(ClientMode.CLIENT_RECEIVE,
+                    BlackjackClient.SESSION_TOKEN_PREFIX + session.token);
+        }
+        session.connection.sendMessage(ClientMode.CLIENT_RECEIVE, "Waiting for round start...");
+        waitForRoundStart();
+        flushAll();
+    }
+
+    void onMessage(TableSession session, String message) {
+        if (message.startsWith(BlackjackClient.PLAYER_ID_PREFIX)) {
+            identify(session, message.substring(BlackjackClient.PLAYER_ID_PREFIX.length()).trim());
+            flushAll();
+            return;
+        }
+        if (message.startsWith(BlackjackClient.RESUME_PREFIX)) {
+            resume(session, message.substring(BlackjackClient.RESUME_PREFIX.length()).trim());
+            flushAll();
+            return;
+        }
+        if (!session.ready) {
+            receiveAnotherRoundAnswer(session, message);
+            flushAll();
+            return;
+        }
+        if (!session.inRound) return;
+        switch (state) {
+            case BETTING: {
+                if (session.bet == 0) receiveBet(session, message);
+                break;
+            }
+            case PLAYER_TURNS: {
+                if (concurrentTurns ? !session.turnDone : session.boxIndex == currentBox) {
+                    receiveDecision(session, message);
+                }
+                break;
+            }
+            case WAITING: {
+                break;
+            }
+        }
+        flushAll();
+    }
+
+    /**
+     * Replaces anonymous account of player by his account from wallet. Player, who has bet in round,
+     * can't change account until round ends.
+     */
+    private void identify(TableSession session, String playerId) {
+        PlayerConnection connection = session.connection;
+        if (wallet == null) {
+            connection.sendMessage(ClientMode.CLIENT_RECEIVE, "Players' accounts are not kept by this server.");
+            return;
+        }
+        if (session.account.getPlayerId() != null || (session.inRound && session.bet != 0)) {
+            connection.sendMessage(ClientMode.CLIENT_RECEIVE, "You can't change your account now.");
+            return;
+        }
+        try {
+            session.account = wallet.open(playerId, playerMoney);
+        } catch (IllegalArgumentException e) {
+            connection.sendMessage(ClientMode.CLIENT_RECEIVE, e.getMessage());
+            return;
+        }
+        session.initialMoney = session.account.getBalance();
+        ServerLog.info("player identified", "table", tableIndex, "box", session.boxIndex + 1, playerId);
+        connection.sendMessage(ClientMode.CLIENT_RECEIVE, "Welcome, " + playerId + ".",
+                "Your money: " + session.initialMoney);
+        if (session.initialMoney < minimalBet) {
+            connection.sendMessage(ClientMode.CLIENT_RECEIVE, "You don't have enough money for next round.");
+            sayGoodbye(session);
+            connection.close();
+            onLeave(session);
+        }
+    }
+
+    /**
+     * Passes connection of player, who was seated before his token reached lobby, to his detached session,
+     * maybe at other table, and frees box, which player has occupied on reconnection. If there is no such
+     * session, player stays as new one.
+     */
+    private void resume(TableSession session, String token) {
+        boolean newPlayer = session.account.getPlayerId() == null && !(session.inRound && session.bet != 0);
+        if (!newPlayer || sessionRegistry == null || !sessionRegistry.resume(token, session.connection)) {
+            session.connection.sendMessage(ClientMode.CLIENT_RECEIVE, BlackjackClient.SESSION_NOT_RESUMED);
+            resendState(session);
+            return;
+        }
+        onLeave(session);
+    }
+
+    /**
+     * Keeps box of player, whose connection was lost, until he comes back or grace period is over.
+     */
+    void onDisconnect(final TableSession session) {
+        if (session.finished) return;
+        Runnable expiry = new Runnable() {
+            public void run() {
+                onLeave(session);
+            }
+        };
+        if (sessionRegistry == null || !sessionRegistry.detach(session.token, session, session.connection, expiry)) {
+            onLeave(session);
+            return;
+        }
+        session.detached = true;
+        ServerLog.info("player detached", "table", tableIndex, "box", session.boxIndex + 1);
+        if (state == State.WAITING) stopWaitingIfNobodyReady();
+        flushAll();
+    }
+
+    /**
+     * Continues session of player, who came back on new connection.
+     */
+    void onResume(TableSession session) {
+        PlayerConnection connection = session.connection;
+        if (session.finished) {
+            // session ended, when player was already reconnecting
+            connection.sendMessage(ClientMode.CLIENT_DISCONNECT, BlackjackClient.SESSION_NOT_RESUMED);
+            connection.close();
+            return;
+        }
+        session.detached = false;
+        ServerLog.info("player resumed", "table", tableIndex, "box", session.boxIndex + 1);
+        connection.sendMessage(ClientMode.CLIENT_RECEIVE, BlackjackClient.SESSION_RESUMED,
+                "Your money: " + session.account.getBalance());
+        resendState(session);
+        flushAll();
+    }
+
+    /**
+     * Sends current state of round to player and asks him again, if table waits for his answer.
+     */
+    private void resendState(TableSession session) {
+        PlayerConnection connection = session.connection;
+        if (!session.ready) {
+            proposeAnotherRound(session);
+            return;
+        }
+        if (!session.inRound) {
+            connection.sendMessage(ClientMode.CLIENT_RECEIVE, "Waiting for round start...");
+            waitForRoundStart();
+            return;
+        }
+        switch (state) {
+            case BETTING: {
+                if (session.bet == 0) {
+                    proposeBet(session);
+                } else {
+                    connection.sendAmount(ClientMode.CLIENT_RECEIVE, AmountKind.BET, session.bet);
+                    connection.sendMessage(ClientMode.CLIENT_RECEIVE, "Waiting for bets from other players...");
+                }
+                break;
+            }
+            case PLAYER_TURNS: {
+                connection.sendAmount(ClientMode.CLIENT_RECEIVE, AmountKind.BET, session.bet);
+                connection.sendCards(ClientMode.CLIENT_RECEIVE, HandOwner.DEALER, dealerHand);
+                connection.sendCards(ClientMode.CLIENT_RECEIVE, HandOwner.PLAYER, session.hand);
+                if (concurrentTurns ? !session.turnDone : session.boxIndex == currentBox) {
+                    proposeDecision(session);
+                } else {
+                    connection.sendMessage(ClientMode.CLIENT_RECEIVE, "Waiting for other players...");
+                }
+                break;
+            }
+            case WAITING: {
+                break;
+            }
+        }
+    }
+
+    void onLeave(TableSession session) {
+        if (session.finished) return;
+        freeBox(session);
+        ServerLog.info("player left", "table", tableIndex, "box", session.boxIndex + 1);
+        if (journal != null && session.inRound && state != State.WAITING) journal.left(round, session.boxIndex + 1);
+        switch (state) {
+            case WAITING: {
+                stopWaitingIfNobodyReady();
+                lobby.tableOpened(this, 1);
+                break;
+            }
+            case BETTING: {
+                if (countInRound() == 0) {
+                    abandonRound();
+                } else if (allBetsMade()) {
+                    deal();
+                }
+                break;
+            }
+            case PLAYER_TURNS: {
+                if (countInRound() == 0) {
+                    abandonRound();
+                } else if (concurrentTurns) {
+                    if (allTurnsDone()) finishTurns();
+                } else if (session.boxIndex == currentBox) {
+                    nextTurn();
+                }
+                break;
+            }
+        }
+        flushAll();
+    }
+
+    /**
+     * Stops waiting for round start, if no ready players remained: the wait is counted again since next one.
+     */
+    private void stopWaitingIfNobodyReady() {
+        if (countReady() > 0) return;
+        stopTimer();
+        registrationTimeIsOver = false;
+        phaseStartTime = 0;
+    }
+
+    private void seat(LobbySession player) {
+        if (state != State.WAITING || seatedCount + reservedCount >= maxBoxes) {
+            lobby.playerArrived(player);
+            return;
+        }
+        reservedCount++;
+        player.seatAt(this, eventLoop);
+    }
+
+    /**
+     * Frees box, which was reserved for player, who has gone before he reached table. Could be called from
+     * any thread.
+     */
+    void cancelReservation() {
+        eventLoop.execute(new Runnable() {
+            public void run() {
+                reservedCount--;
+                if (state == State.WAITING) lobby.tableOpened(GameTable.this, 1);
+            }
+        });
+    }
+
+    private void freeBox(TableSession session) {
+        session.finished = true;
+        if (session.detached) sessionRegistry.forget(session.token);
+        boxes[session.boxIndex] = null;
+        seatedCount--;
+    }
+
+    /**
+     * Makes table open for new players and starts waiting for round start.
+     */
+    private void openRegistration() {
+        stopTimer();
+        state = State.WAITING;
+        currentBox = -1;
+        registrationTimeIsOver = false;
+        phaseStartTime = 0;
+        lobby.tableOpened(this, maxBoxes - seatedCount - reservedCount);
+        // players, who joined or agreed to play during last round, are already waiting
+        if (countReady() > 0) waitForRoundStart();
+    }
+
+    /**
+     * Starts waiting for round start, if table is open: the wait time is counted since first ready player.
+     */
+    private void waitForRoundStart() {
+        if (state != State.WAITING) return;
+        if (phaseStartTime == 0) phaseStartTime = System.nanoTime();
+        if (timer == null) startTimer(Deadline.ROUND_START, maxWaitMillis);
+        checkRoundStart();
+    }
+
+    /**
+     * Starts table's timer. Table has one timer, because it waits for one deadline at a time:
+     * round start, bets or current player's decision. Previous timer is stopped.
+     *
+     * @param deadline    deadline, which is waited for
+     * @param delayMillis time to deadline
+     */
+    private void startTimer(final Deadline deadline, long delayMillis) {
+        stopTimer();
+        final int number = timerNumber;
+        timer = eventLoop.schedule(new Runnable() {
+            public void run() {
+                // timer could be stopped when it was already passed to loop
+                if (number != timerNumber) return;
+                timer = null;
+                onDeadline(deadline);
+                flushAll();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void stopTimer() {
+        if (timer != null) timer.cancel(false);
+        timer = null;
+        timerNumber++;
+    }
+
+    private void onDeadline(Deadline deadline) {
+        switch (deadline) {
+            case ROUND_START: {
+                registrationTimeIsOver = true;
+                checkRoundStart();
+                break;
+            }
+            case BET: {
+                // players, who haven't made bets, sit out the round; others start playing
+                for (TableSession session : boxes) {
+                    if (session == null || !session.inRound || session.bet != 0) continue;
+                    session.inRound = false;
+                    if (journal != null) journal.satOut(round, session.boxIndex + 1);
+                    metrics.betTimedOut();
+                    ServerLog.info("bet timeout", "table", tableIndex, "box", session.boxIndex + 1);
+                    session.connection.sendMessage(ClientMode.CLIENT_RECEIVE,
+                            "Time for bet is over. You sit out this round.");
+                    // player, who is away, doesn't delay next rounds until he comes back
+                    proposeAnotherRound(session);
+                }
+                if (countInRound() == 0) abandonRound();
+                else deal();
+                break;
+            }
+            case ACTION: {
+                if (concurrentTurns) {
+                    for (TableSession session : boxes) {
+                        if (session == null || !session.inRound || session.turnDone) continue;
+                        actionTimedOut(session);
+                    }
+                    finishTurns();
+                    break;
+                }
+                // player, who hasn't made decision, stands
+                actionTimedOut(boxes[currentBox]);
+                nextTurn();
+                break;
+            }
+        }
+    }
+
+    private void actionTimedOut(TableSession session) {
+        if (journal != null) journal.decision(round, session.boxIndex + 1, PlayerDecision.STAND, true);
+        metrics.actionTimedOut();
+        ServerLog.info("action timeout", "table", tableIndex, "box", session.boxIndex + 1);
+        session.connection.sendMessage(ClientMode.CLIENT_RECEIVE, "Time for decision is over. You stand.",
+                "Waiting for other players...");
+    }
+
+
+    private void checkRoundStart() {
+        int readyCount = countReady();
+        if (readyCount == maxBoxes || (registrationTimeIsOver && readyCount >= minPlayers)) startRound();
+    }
+
+    /**
+     * Closes table for new players and asks ready players for bets. Players, who haven't answered yet whether
+     * they play another round, and detached players keep their boxes and wait for next round.
+     */
+    private void startRound() {
+        lobby.tableClosed(this);
+        state = State.BETTING;
+        long now = System.nanoTime();
+        metrics.recordRoundStartWait(now - phaseStartTime);
+        phaseStartTime = now;
+        ServerLog.info("round started", "table", tableIndex, "players", countReady());
+        if (journal != null) round = journal.roundStarted(countReady());
+        for (TableSession session : boxes) {
+            if (session == null || !session.ready || session.detached) continue;
+            session.inRound = true;
+            session.bet = 0;
+            proposeBet(session);
+        }
+        startTimer(Deadline.BET, betTimeoutMillis);
+    }
+
+    private void proposeBet(TableSession session) {
+        session.connection.sendMessage(ClientMode.CLIENT_SEND_TO_SERVER, AbstractPlayerHandler.betProposal +
+                "; Minimal bet is " + minimalBet + "$.");
+    }
+
+    private void receiveBet(TableSession session, String message) {
+        int bet;
+        try {
+            bet = Integer.valueOf(message.trim());
+        } catch (NumberFormatException e) {
+            bet = 0;
+        }
+        if (bet < minimalBet) {
+            session.connection.sendMessage(ClientMode.CLIENT_RECEIVE,
+                    "Please, type one positive integer number, equal or bigger than minimal bet");
+            proposeBet(session);
+            return;
+        }
+        if (!session.account.debit(bet)) {
+            session.connection.sendMessage(ClientMode.CLIENT_RECEIVE,
+                    "You don't have enough money for this bet. Your money: " + session.account.getBalance());
+            proposeBet(session);
+            return;
+        }
+        session.bet = bet;
+        if (journal != null) journal.bet(round, session.boxIndex + 1, bet);
+        session.connection.sendAmount(ClientMode.CLIENT_RECEIVE, AmountKind.BET, bet);
+        session.connection.sendMessage(ClientMode.CLIENT_RECEIVE, "Waiting for bets from other players...");
+        if (allBetsMade()) deal();
+    }
+
+    /**
+     * Deals initial cards to dealer and each player, then passes turn to first player.
+     */
+    private void deal() {
+        stopTimer();
+        metrics.recordBetWait(System.nanoTime() - phaseStartTime);
+        phaseStartTime = 0;
+        prepareShoe();
+        ServerLog.info("cards dealt", "table", tableIndex, "seed", shoe.getShuffleSeed(), "dealtCards",
+                shoe.getDealtCount());
+        state = State.PLAYER_TURNS;
+        if (journal != null) journal.shoe(round, shoe.getShuffleSeed(), shoe.getDealtCount(), shoe.getDecksCount());
+        dealerHand.clear();
+        dealerHand.retrieveCardFromDeck(shoe);
+        if (journal != null) journal.cards(round, 0, dealerHand, 0);
+        int playersInGame = countInRound();
+        for (TableSession session : boxes) {
+            if (session == null || !session.inRound) continue;
+            session.hand.clear();
+            session.hand.retrieveCardFromDeck(shoe, 2);
+            if (journal != null) journal.cards(round, session.boxIndex + 1, session.hand, 0);
+            session.connection.sendMessage(ClientMode.CLIENT_RECEIVE, "Players in game: " + playersInGame);
+            session.connection.sendCards(ClientMode.CLIENT_RECEIVE, HandOwner.DEALER, dealerHand);
+            session.connection.sendCards(ClientMode.CLIENT_RECEIVE, HandOwner.PLAYER, session.hand);
+            session.connection.sendAmount(ClientMode.CLIENT_RECEIVE, AmountKind.MONEY, session.account.getBalance());
+            session.connection.sendMessage(ClientMode.CLIENT_RECEIVE, "Please wait your turn...");
+        }
+        currentBox = -1;
+        drawOrder.setLength(0);
+        if (concurrentTurns) startConcurrentTurns();
+        else nextTurn();
+    }
+
+    /**
+     * Asks all players, who need to make decisions, at once. If nobody needs, dealer takes cards.
+     */
+    private void startConcurrentTurns() {
+        for (TableSession session : boxes) {
+            if (session == null || !session.inRound) continue;
+            // player with blackjack doesn't need to take cards
+            session.turnDone = session.hand.isBlackjack();
+            if (session.turnDone) continue;
+            session.connection.sendMessage(ClientMode.CLIENT_RECEIVE, "Now is your turn.");
+            proposeDecision(session);
+        }
+        if (allTurnsDone()) finishTurns();
+        else startTimer(Deadline.ACTION, actionTimeoutMillis);
+    }
+
+    /**
+     * Passes turn to next player, who needs to make decisions. If all players are done, dealer takes cards.
+     */
+    private void nextTurn() {
+        for (int boxIndex = currentBox + 1; boxIndex < boxes.length; boxIndex++) {
+            TableSession session = boxes[boxIndex];
+            // player with blackjack doesn't need to take cards
+            if (session == null || !session.inRound || session.hand.isBlackjack()) continue;
+            currentBox = boxIndex;
+            session.connection.sendMessage(ClientMode.CLIENT_RECEIVE, "Now is your turn.");
+            proposeDecision(session);
+            startTimer(Deadline.ACTION, actionTimeoutMillis);
+            return;
+        }
+        finishTurns();
+    }
+
+    private void finishTurns() {
+        stopTimer();
+        currentBox = boxes.length;
+        finishRound();
+    }
+
+    private void proposeDecision(TableSession session) {
+        session.decisionRequestTime = System.nanoTime();
+        session.connection.sendMessage(ClientMode.CLIENT_SEND_TO_SERVER, AbstractPlayerHandler.chooseActionInstruction);
+    }
+
+    /**
+     * Applies HIT/STAND/DOUBLE decision. Unknown decisions are ignored and player is asked again.
+     */
+    private void receiveDecision(TableSession session, String message) {
+        if (message.trim().equalsIgnoreCase(BlackjackClient.HINT_REQUEST)) {
+            session.connection.sendMessage(ClientMode.CLIENT_RECEIVE, advisor != null
+                    ? advisor.hint(session.hand, dealerHand, shoe) : "Hints are not available.");
+            proposeDecision(session);
+            return;
+        }
+        metrics.recordDecisionWait(System.nanoTime() - session.decisionRequestTime);
+        PlayerDecision decision = message.isEmpty() ? null : PlayerDecision.fromLetter(message.charAt(0));
+        if (decision == PlayerDecision.DOUBLE && !session.account.debit(session.bet)) {
+            session.connection.sendMessage(ClientMode.CLIENT_RECEIVE, "You don't have enough money to double.");
+            decision = null;
+        }
+        boolean boxReady = false;
+        int cardsCount = session.hand.getCardsCount();
+        if (decision != null) {
+            if (journal != null) journal.decision(round, session.boxIndex + 1, decision, false);
+            switch (decision) {
+                case HIT: {
+                    session.hand.retrieveCardFromDeck(shoe);
+                    drawOrder.append(' ').append(session.boxIndex + 1);
+                    break;
+                }
+                case DOUBLE: {
+                    session.bet *= 2;
+                    session.hand.retrieveCardFromDeck(shoe);
+                    drawOrder.append(' ').append(session.boxIndex + 1);
+                    boxReady = true;
+                    break;
+                }
+                case STAND: {
+                    boxReady = true;
+                    break;
+                }
+            }
+        }
+        if (journal != null) journal.cards(round, session.boxIndex + 1, session.hand, cardsCount);
+        if (session.hand.isBusted()) boxReady = true;
+        session.connection.sendCards(ClientMode.CLIENT_RECEIVE, HandOwner.DEALER, dealerHand);
+        session.connection.sendCards(ClientMode.CLIENT_RECEIVE, HandOwner.PLAYER, session.hand);
+        if (!boxReady) {
+            proposeDecision(session);
+            if (!concurrentTurns) startTimer(Deadline.ACTION, actionTimeoutMillis);
+            return;
+        }
+        session.connection.sendMessage(ClientMode.CLIENT_RECEIVE, "Waiting for other players...");
+        if (!concurrentTurns) {
+            nextTurn();
+            return;
+        }
+        session.turnDone = true;
+        if (allTurnsDone()) finishTurns();
+    }
+
+    /**
+     * Dealer takes cards, then bets are settled and players are asked for another round. Then table opens
+     * for next round.
+     */
+    private void finishRound() {
+        long startTime = System.nanoTime();
+        if (concurrentTurns) {
+            ServerLog.info("players' cards order by boxes", "table", tableIndex, drawOrder.toString());
+        }
+        int dealerCardsCount = dealerHand.getCardsCount();
+        while (!dealerHand.reachesDealerHit()) {
+            dealerHand.retrieveCardFromDeck(shoe);
+        }
+        if (journal != null) journal.cards(round, 0, dealerHand, dealerCardsCount);
+        for (TableSession session : boxes) {
+            if (session == null || !session.inRound) continue;
+            GameResult gameResult = session.hand.isBlackjack() ? GameResult.PLAYER_BLACKJACK
+                    : GameResult.resolve(session.hand, dealerHand);
+            PlayerConnection connection = session.connection;
+            connection.sendMessage(ClientMode.CLIENT_RECEIVE, "Other players are done with their cards.",
+                    "Dealer retrieves cards...");
+            connection.sendCards(ClientMode.CLIENT_RECEIVE, HandOwner.DEALER, dealerHand);
+            connection.sendCards(ClientMode.CLIENT_RECEIVE, HandOwner.PLAYER, session.hand);
+            int net = gameResult.getNet(session.bet);
+            // bet was taken when it was made, so it's returned together with win
+            session.account.credit(session.bet + net);
+            int money = session.account.getBalance();
+            if (journal != null) journal.settlement(round, session.boxIndex + 1, gameResult, net, money);
+            connection.sendMessage(ClientMode.CLIENT_RECEIVE, gameResult.getDescription());
+            connection.sendAmount(ClientMode.CLIENT_RECEIVE, AmountKind.NET, net);
+            connection.sendAmount(ClientMode.CLIENT_RECEIVE, AmountKind.MONEY, money);
+            session.inRound = false;
+            if (money < minimalBet) {
+                connection.sendMessage(ClientMode.CLIENT_RECEIVE, "You don't have enough money for next round.");
+                dismiss(session);
+            } else {
+                proposeAnotherRound(session);
+            }
+        }
+        if (journal != null) journal.roundEnded(round, false);
+        roundsPlayed++;
+        metrics.roundPlayed();
+        metrics.recordDealerResolution(System.nanoTime() - startTime);
+        ServerLog.info("round ended", "table", tableIndex);
+        openRegistration();
+    }
+
+    private void proposeAnotherRound(TableSession session) {
+        session.ready = false;
+        session.connection.sendMessage(ClientMode.CLIENT_SEND_TO_SERVER, "Want to play another round? (y/n)");
+    }
+
+    /**
+     * Player, who answered 'y', waits for next round with the same box and money; player, who answered 'n',
+     * leaves the table. Other answers are asked again.
+     */
+    private void receiveAnotherRoundAnswer(TableSession session, String message) {
+        char answer = message.trim().isEmpty() ? ' ' : Character.toLowerCase(message.trim().charAt(0));
+        if (answer == 'y') {
+            session.ready = true;
+            session.connection.sendMessage(ClientMode.CLIENT_RECEIVE, "Waiting for round start...");
+            waitForRoundStart();
+        } else if (answer == 'n') {
+            dismiss(session);
+            // player wasn't ready, so round start doesn't depend on him
+            if (state == State.WAITING) lobby.tableOpened(this, 1);
+        } else {
+            proposeAnotherRound(session);
+        }
+    }
+
+    /**
+     * Sends results to player, who isn't in round, frees his box and disconnects him.
+     */
+    private void dismiss(TableSession session) {
+        sayGoodbye(session);
+        freeBox(session);
+        ServerLog.info("player left", "table", tableIndex, "box", session.boxIndex + 1);
+        session.connection.close();
+    }
+
+    /**
+     * Sends results of whole session to player.
+     */
+    private void sayGoodbye(TableSession session) {
+        session.connection.sendAmount(ClientMode.CLIENT_RECEIVE, AmountKind.RESULTS,
+                session.account.getBalance() - session.initialMoney);
+        session.connection.sendMessage(ClientMode.CLIENT_DISCONNECT, "Goodbye.");
+    }
+
+    /**
+     * Ends round, in which no players remained, without dealer's turn.
+     */
+    private void abandonRound() {
+        ServerLog.info("round abandoned", "table", tableIndex);
+        if (journal != null) journal.roundEnded(round, true);
+        openRegistration();
+    }
+
+    /**
+     * Exchanges shoe for shuffled one from pool (or reshuffles it, if there is no pool)
+     * when its cut card was reached.
+     */
+    private void prepareShoe() {
+        if (!shoe.needsReshuffle()) return;
+        if (shoePool != null) shoe = shoePool.exchange(shoe);
+        else shoe.reshuffle();
+    }
+
+    private boolean allBetsMade() {
+        for (TableSession session : boxes) {
+            if (session != null && session.inRound && session.bet == 0) return false;
+        }
+        return true;
+    }
+
+    private boolean allTurnsDone() {
+        for (TableSession session : boxes) {
+            if (session != null && session.inRound && !session.turnDone) return false;
+        }
+        return true;
+    }
+
+    private int countInRound() {
+        int count = 0;
+        for (TableSession session : boxes) {
+            if (session != null && session.inRound) count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return amount of players, who will take part in next round
+     */
+    private int countReady() {
+        int count = 0;
+        for (TableSession session : boxes) {
+            if (session != null && session.ready && !session.detached) count++;
+        }
+        return count;
+    }
+
+    private void flushAll() {
+        for (TableSession session : boxes) {
+            if (session != null) session.connection.flush();
+        }
+    }
+
+    public int getTableIndex() {
+        return tableIndex;
+    }
+
+    /**
+     * @return amount of rounds, which were played by table
+     */
+    public long getRoundsPlayed() {
+        return roundsPlayed;
+    }
+
+    public double getRoundsPerSecond() {
+        return roundsRate.perSecond(roundsPlayed);
+    }
+}
@@ -0,0 +1,17 @@
+package blackjack.server;
+
+/**
+ * Counters of one {@link GameTable}, published through JMX.
+ * @author yevhen bilous
+ */
+public interface GameTableMXBean {
+
+    int getTableIndex();
+
+    long getRoundsPlayed();
+
+    /**
+     * @return rounds per second at this table during last 10 seconds
+     */
+    double getRoundsPerSecond();
+}
@@ -0,0 +1,42 @@
+package blackjack.server;
+
+import blackjack.metrics.LatencyHistogram;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records latencies of one kind, measured by several threads, without locks: each thread records to its own
+ * {@link LatencyHistogram}, and histograms are added together only when summary is requested. Summary is read
+ * while threads record, so it may miss values, which are being recorded at that moment.
+ * @author yevhen bilous
+ */
+public class LatencyRecorder {
+
+    private final List<LatencyHistogram> histograms = new CopyOnWriteArrayList<LatencyHistogram>();
+    private final ThreadLocal<LatencyHistogram> threadHistogram = new ThreadLocal<LatencyHistogram>() {
+        protected LatencyHistogram initialValue() {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histograms.add(histogram);
+            return histogram;
+        }
+    };
+
+    /**
+     * @param nanos latency in nanoseconds
+     */
+    public void record(long nanos) {
+        threadHistogram.get().record(nanos);
+    }
+
+    /**
+     * @return summary of latencies, recorded by all threads
+     */
+    public LatencySummary getSummary() {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (LatencyHistogram histogram : histograms) {
+            merged.add(histogram);
+        }
+        return new LatencySummary(merged);
+    }
+}
@@ -0,0 +1,59 @@
+package blackjack.server;
+
+import blackjack.metrics.LatencyHistogram;
+
+/**
+ * Percentiles of latencies, recorded by {@link LatencyRecorder}, in milliseconds. Is published through JMX
+ * as composite value.
+ * @author yevhen bilous
+ */
+public class LatencySummary {
+
+    private final long count;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double p999;
+    private final double max;
+
+    LatencySummary(LatencyHistogram histogram) {
+        count = histogram.getTotalCount();
+        p50 = toMillis(histogram.getPercentile(50));
+        p90 = toMillis(histogram.getPercentile(90));
+        p99 = toMillis(histogram.getPercentile(99));
+        p999 = toMillis(histogram.getPercentile(99.9));
+        max = toMillis(histogram.getMax());
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public double getP90() {
+        return p90;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public double getP999() {
+        return p999;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public String toString() {
+        return String.format("count %d, p50 %.3f ms, p99 %.3f ms, max %.3f ms", count, p50, p99, max);
+    }
+}
@@ -0,0 +1,106 @@
+package blackjack.server;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Assigns connected players to tables of {@link MultiplePlayerServer}. Table is open for new players
+ * between rounds; players, who arrive when no table is open, wait in lobby until some table opens.
+ * Tables are filled in order they were opened, so arriving players fill one table instead of being spread
+ * over all open tables. Waiting players are served by {@link LobbySession}s on event loops - they occupy
+ * no threads, and player, who reconnects, resumes his session from lobby without waiting for table.
+ * Time, which players spend in lobby, is recorded to {@link TableMetrics}.
+ * Methods could be called from any thread: acceptor's thread or tables' event loops.
+ * @author yevhen bilous
+ */
+public class Lobby {
+
+    private final int capacity;
+    private final TableMetrics metrics;
+    private final Queue<LobbySession> waitingPlayers = new ArrayDeque<LobbySession>();
+    private final Map<GameTable, Integer> openTables = new LinkedHashMap<GameTable, Integer>();
+
+    /**
+     * @param capacity maximal amount of waiting players; connections over this limit are denied
+     * @param metrics  counters of tables
+     */
+    public Lobby(int capacity, TableMetrics metrics) {
+        this.capacity = capacity;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Passes player to open table, or keeps him waiting if there is no open table.
+     *
+     * @param player session of player, who waits for table
+     */
+    public synchronized void playerArrived(LobbySession player) {
+        if (player.isFinished()) return;
+        Iterator<Map.Entry<GameTable, Integer>> tables = openTables.entrySet().iterator();
+        if (tables.hasNext()) {
+            Map.Entry<GameTable, Integer> table = tables.next();
+            table.getKey().offerPlayer(player);
+            metrics.recordLobbyWait(0);
+            if (table.getValue() == 1) tables.remove();
+            else table.setValue(table.getValue() - 1);
+            return;
+        }
+        if (waitingPlayers.size() < capacity) {
+            player.arrivalTime = System.nanoTime();
+            waitingPlayers.add(player);
+            ServerLog.info("player joined lobby", "waitingPlayers", waitingPlayers.size());
+            return;
+        }
+        ServerLog.warn("lobby is full, connection denied");
+        player.deny();
+    }
+
+    /**
+     * Forgets waiting player, who has left or resumed his session.
+     *
+     * @param player session of player
+     */
+    public synchronized void playerLeft(LobbySession player) {
+        waitingPlayers.remove(player);
+    }
+
+    /**
+     * Opens table for new players: waiting players are passed to it at once, and if table still has
+     * free boxes, next arriving players are passed to it. If table is already open, its free boxes
+     * are added to already known ones.
+     *
+     * @param table     table, which waits for players
+     * @param freeBoxes amount of free boxes at table
+     */
+    public synchronized void tableOpened(GameTable table, int freeBoxes) {
+        while (freeBoxes > 0 && !waitingPlayers.isEmpty()) {
+            LobbySession player = waitingPlayers.poll();
+            table.offerPlayer(player);
+            metrics.recordLobbyWait(System.nanoTime() - player.arrivalTime);
+            freeBoxes--;
+        }
+        if (freeBoxes <= 0) return;
+        Integer alreadyFree = openTables.get(table);
+        openTables.put(table, alreadyFree == null ? freeBoxes : alreadyFree + freeBoxes);
+    }
+
+    /**
+     * Closes table for new players, because its round has started. Players, which were already passed
+     * to table, but haven't reached it yet, are returned to lobby by table.
+     *
+     * @param table table, which starts round
+     */
+    public synchronized void tableClosed(GameTable table) {
+        openTables.remove(table);
+    }
+
+    /**
+     * @return amount of players, waiting for open table
+     */
+    public synchronized int getWaitingCount() {
+        return waitingPlayers.size();
+    }
+}
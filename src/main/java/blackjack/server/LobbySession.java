@@ -0,0 +1,118 @@
+package blackjack.server;
+
+import blackjack.client.BlackjackClient;
+import blackjack.client.ClientMode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Session of player of {@link MultiplePlayerServer}, who waits in {@link Lobby} for table. Player gets it right
+ * after connection and is passed to lobby at once, so he is greeted by table as soon as some table seats him.
+ * Meanwhile player's messages are read: reconnected player sends {@link BlackjackClient#RESUME_PREFIX} message
+ * and his connection is passed to his detached session, even when all tables play their rounds and no box is
+ * free. Other messages, like {@link BlackjackClient#PLAYER_ID_PREFIX}, are kept and passed to table's session
+ * with the channel, as if they were sent to table.
+ * Session is run by loop's thread, like any session; {@link LobbySession#seatAt(GameTable, NioEventLoop)}
+ * and {@link LobbySession#deny()} could be called from any thread.
+ * @author yevhen bilous
+ */
+public class LobbySession implements PlayerSession {
+
+    /**
+     * Maximal amount of messages, which player may send before he is seated. Player is disconnected
+     * if he sends more.
+     */
+    public static final int MAX_MESSAGES = 16;
+
+    private final NioConnection connection;
+    private final SessionRegistry sessionRegistry;
+    private final Lobby lobby;
+    private final List<String> messages = new ArrayList<String>();
+    // set by loop's thread, lobby checks it to skip players, who have gone
+    private volatile boolean finished = false;
+    // time of arrival to lobby, guarded by lobby
+    long arrivalTime;
+
+    /**
+     * @param connection      new connection of player
+     * @param sessionRegistry registry of detached sessions, may be null - then sessions aren't resumed
+     * @param lobby           lobby, which seats new players
+     */
+    public LobbySession(NioConnection connection, SessionRegistry sessionRegistry, Lobby lobby) {
+        this.connection = connection;
+        this.sessionRegistry = sessionRegistry;
+        this.lobby = lobby;
+    }
+
+    public void start() {
+        lobby.playerArrived(this);
+    }
+
+    public void onMessage(String message) {
+        if (finished) return;
+        if (message.startsWith(BlackjackClient.RESUME_PREFIX)) {
+            resume(message.substring(BlackjackClient.RESUME_PREFIX.length()).trim());
+            return;
+        }
+        if (messages.size() == MAX_MESSAGES) {
+            ServerLog.warn("too many messages from player in lobby, disconnect");
+            connection.closeNow();
+            return;
+        }
+        messages.add(message);
+    }
+
+    public void onDisconnect() {
+        finished = true;
+        lobby.playerLeft(this);
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Passes player to table, which has reserved box for him. If player has already gone, reservation
+     * is cancelled.
+     *
+     * @param table     table, which seats player
+     * @param tableLoop loop of table
+     */
+    void seatAt(final GameTable table, final NioEventLoop tableLoop) {
+        connection.getEventLoop().execute(new Runnable() {
+            public void run() {
+                if (finished) {
+                    table.cancelReservation();
+                    return;
+                }
+                finished = true;
+                connection.handOver(tableLoop, table, messages);
+            }
+        });
+    }
+
+    /**
+     * Disconnects player, because lobby is full.
+     */
+    void deny() {
+        connection.getEventLoop().execute(new Runnable() {
+            public void run() {
+                connection.closeNow();
+            }
+        });
+    }
+
+    /**
+     * Passes connection to detached session with specified token. If there is no such session, player
+     * keeps waiting as new one.
+     */
+    private void resume(String token) {
+        if (sessionRegistry != null && sessionRegistry.resume(token, connection)) {
+            finished = true;
+            lobby.playerLeft(this);
+            return;
+        }
+        connection.sendMessage(ClientMode.CLIENT_RECEIVE, BlackjackClient.SESSION_NOT_RESUMED);
+    }
+}
@@ -0,0 +1,9 @@
+package blackjack.server;
+
+/**
+ * Levels of {@link ServerLog} events. Events below configured level are skipped before they are put in buffer.
+ * @author yevhen bilous
+ */
+public enum LogLevel {
+    DEBUG, INFO, WARN, ERROR
+}
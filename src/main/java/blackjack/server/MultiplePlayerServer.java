@@ -1,144 +1,320 @@
 package blackjack.server;
 
-import blackjack.cards.Deck;
-import blackjack.cards.Hand;
-import blackjack.cards.Shoe;
+import blackjack.cards.ArrayShoe;
+import blackjack.cards.SecureShuffleRandom;
+import blackjack.cards.ShoePool;
+import blackjack.journal.JournalWriter;
+import blackjack.simulation.BasicStrategy;
+import blackjack.wallet.Wallet;
+import blackjack.wallet.WalletLog;
 
-import java.net.Socket;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.*;
+import java.util.Collection;
 
 /**
  * Blackjack server, which supports multiple user connections with players amount restriction.
- * Players have some time to connect to the server, then game round starts.
+ * Server accepts players all the time and passes them to {@link Lobby}, where they wait in {@link LobbySession}s,
+ * and reconnected players could resume their sessions; several {@link GameTable}s play
+ * rounds concurrently, each table takes waiting players into its free boxes before round.
+ * Tables are state machines, driven by a few {@link NioEventLoop} threads, so players, who wait for
+ * other players, occupy no threads.
+ * Besides connection counters, server publishes {@link TableMetricsMXBean} and {@link GameTableMXBean} of each
+ * table through JMX.
  *
  * @author yevhen bilous
  */
-public class MultiplePlayerServer implements Runnable {
+public class MultiplePlayerServer extends NioServer {
+
+    public static final int DEFAULT_LOBBY_CAPACITY = 1024;
+    public static final int DEFAULT_MIN_PLAYERS = 1;
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 15000;
+    public static final String JOURNAL_PROPERTY = "blackjack.journal";
+    public static final String WALLET_PROPERTY = "blackjack.wallet";
+    public static final String RESUME_GRACE_PROPERTY = "blackjack.resume.grace";
+    public static final String HINT_PROPERTY = "blackjack.hint";
 
-    private int serverPort = 9001;
-    private Thread runningThread = null;
     private final int maxBoxes = 5;
-    private BlockingQueue<Integer> freeIndexesQueue = null;
-    private static final int waitSecondsToRegister = 15;
+    private final TableMetrics metrics = new TableMetrics();
+    private final Lobby lobby = new Lobby(DEFAULT_LOBBY_CAPACITY, metrics);
+    private final GameTable[] tables;
+    private final SessionFactory lobbySessions = new SessionFactory() {
+        public PlayerSession createSession(PlayerConnection connection) {
+            return new LobbySession((NioConnection) connection, sessionRegistry, lobby);
+        }
+    };
+    private SessionRegistry sessionRegistry = null;
 
     /**
-     * Constructor, which specifies a port to listen.
+     * Constructor, which specifies a port to listen. Server has one table for each available processor;
+     * each table keeps its own shoe between rounds and reshuffles it in place when its cut card was reached.
      *
      * @param port Listening port.
+     * @throws IOException if event loops can't be created
      */
-    public MultiplePlayerServer(int port) {
-        this.serverPort = port;
+    public MultiplePlayerServer(int port) throws IOException {
+        this(port, Runtime.getRuntime().availableProcessors(), DEFAULT_MIN_PLAYERS, DEFAULT_MAX_WAIT_MILLIS, null);
     }
 
     /**
-     * Until terminated, awaits for players to connect. After game round creates new game round.
-     * Creates different thread for each player with accompanied {@link MultiplePlayerHandler} instance.
-     * Synchronizes actions of each created {@link MultiplePlayerHandler} instance.
-     * If no player connects during specified time, starts game round from scratch.
+     * Constructor, which specifies a port to listen and a pool of shuffled shoes. Server has one table for
+     * each available processor.
+     *
+     * @param port     Listening port.
+     * @param shoePool pool of shuffled shoes
+     * @throws IOException if event loops can't be created
      */
-    public void run() {
+    public MultiplePlayerServer(int port, ShoePool shoePool) throws IOException {
+        this(port, Runtime.getRuntime().availableProcessors(), DEFAULT_MIN_PLAYERS, DEFAULT_MAX_WAIT_MILLIS,
+                shoePool);
+    }
 
-        System.out.println("New round. Allowed players: " + maxBoxes);
+    /**
+     * Constructor, which specifies a port to listen, amount of tables, round start policy and a pool
+     * of shuffled shoes. Each table keeps its own shoe between rounds and exchanges it for shuffled one
+     * from pool when its cut card was reached. Tables are distributed between event loops, one loop for
+     * each available processor at most.
+     *
+     * @param port          Listening port.
+     * @param tablesCount   amount of tables, which play concurrently
+     * @param minPlayers    minimal amount of players, with which round starts before all boxes are occupied
+     * @param maxWaitMillis time since first player's arrival, after which round starts without waiting
+     *                      for free boxes to be occupied
+     * @param shoePool      pool of shuffled shoes, may be null - then each table uses its own shoe
+     * @throws IOException if event loops can't be created
+     */
+    public MultiplePlayerServer(int port, int tablesCount, int minPlayers, long maxWaitMillis, ShoePool shoePool)
+            throws IOException {
+        super(port, Math.min(tablesCount, Runtime.getRuntime().availableProcessors()), null);
+        tables = new GameTable[tablesCount];
+        for (int index = 0; index < tablesCount; index++) {
+            tables[index] = new GameTable(index + 1, eventLoops[index % eventLoops.length], lobby, maxBoxes,
+                    minPlayers, maxWaitMillis, shoePool, metrics);
+        }
+    }
 
-        // fill concurrent queue which holds unique indexes of each player
-        freeIndexesQueue = new ArrayBlockingQueue<Integer>(maxBoxes);
-        synchronized (this) {
-            this.runningThread = Thread.currentThread();
-            for (int index = 1; index <= maxBoxes; index++) {
-                freeIndexesQueue.add(index);
-            }
+    /**
+     * Sets deadlines for players' bets and decisions at all tables. Must be called before server is run.
+     *
+     * @param betTimeoutMillis    time since round start, during which player must make bet
+     * @param actionTimeoutMillis time since decision request, during which player must make decision
+     */
+    public void setTimeouts(long betTimeoutMillis, long actionTimeoutMillis) {
+        for (GameTable table : tables) {
+            table.setTimeouts(betTimeoutMillis, actionTimeoutMillis);
         }
+    }
 
-        // starts waiting for connected players
-        List<Socket> acceptedSockets = new ArrayList<Socket>();
-        PlayersCounter playersCounter = new PlayersCounter(acceptedSockets, freeIndexesQueue.size(), serverPort);
-        Thread registerThread = new Thread(playersCounter);
-        registerThread.start();
-        try {
-            runningThread.sleep(waitSecondsToRegister * 1000);
-        } catch (InterruptedException e) {
-            System.out.println("Main sleep interrupted.");
+    /**
+     * Switches concurrent turns mode at all tables, see {@link GameTable#setConcurrentTurns(boolean)}.
+     * Must be called before server is run.
+     *
+     * @param concurrentTurns true, if players take cards concurrently
+     */
+    public void setConcurrentTurns(boolean concurrentTurns) {
+        for (GameTable table : tables) {
+            table.setConcurrentTurns(concurrentTurns);
         }
+    }
 
-        // determine, if there were any connected players
-        System.out.println("Players joined: " + acceptedSockets.size());
-        playersCounter.endRegistration();
-        if (acceptedSockets.size() == 0) {
-            System.out.println("Nobody connected.");
-            return;
+    /**
+     * Makes each table journal its rounds into its own segment files in specified directory.
+     * Journals are closed, i.e. their last records are forced to disk, when JVM exits.
+     * Must be called before server is run.
+     *
+     * @param directory journal directory
+     * @throws IOException if journal can't be created
+     */
+    public void setJournalDirectory(File directory) throws IOException {
+        Collection<JournalWriter> journals = new ArrayList<JournalWriter>();
+        for (GameTable table : tables) {
+            JournalWriter journal = new JournalWriter(directory, "table-" + table.getTableIndex());
+            journals.add(journal);
+            table.setJournal(journal);
         }
+        closeOnExit(journals);
+    }
 
-        // create synchronization variables
-        CyclicBarrier betBarrier = new CyclicBarrier(acceptedSockets.size());
-        CyclicBarrier dealerChoiceBarrier = new CyclicBarrier(acceptedSockets.size() + 1);
-        CyclicBarrier dealerDoneBarrier = new CyclicBarrier(acceptedSockets.size() + 1);
-        Semaphore queueSemaphore = new Semaphore(1);
-        List<MultiplePlayerHandler> playerHandlers = new ArrayList<MultiplePlayerHandler>();
-
-        // create shared show and dealer's hand objects
-        Deck shoe = new Shoe(6, true);
-        Hand dealerHand = new Hand();
-        dealerHand.retrieveCardFromDeck(shoe);
-
-        // creating separate threads for each player
-        for (Socket clientSocket : acceptedSockets) {
-            Integer index = null;
-            try {
-                index = freeIndexesQueue.take();
-            } catch (InterruptedException e) {
-                System.out.println("Interrupted exception in getting indexes for threads: " + e);
+    /**
+     * Closes journals, i.e. forces their last records to disk, when JVM exits.
+     *
+     * @param journals journals; collection could be filled later, until JVM exits
+     */
+    static void closeOnExit(final Collection<JournalWriter> journals) {
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                for (JournalWriter journal : journals) {
+                    journal.close();
+                }
             }
-            MultiplePlayerHandler newPlayerHandler = new MultiplePlayerHandler(clientSocket, index, freeIndexesQueue,
-                    shoe, dealerHand, betBarrier, queueSemaphore, dealerChoiceBarrier, dealerDoneBarrier);
-            playerHandlers.add(newPlayerHandler);
-            new Thread(newPlayerHandler).start();
+        });
+    }
+
+    /**
+     * Makes all tables keep money of identified players in specified wallet. Must be called before server is run.
+     *
+     * @param wallet wallet, shared by tables
+     */
+    public void setWallet(Wallet wallet) {
+        for (GameTable table : tables) {
+            table.setWallet(wallet);
         }
+    }
 
-        // synchronization
-        try {
-            dealerChoiceBarrier.await();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        } catch (BrokenBarrierException e) {
-            e.printStackTrace();
+    /**
+     * Lets players, who lost connection, resume their sessions at all tables. Must be called before server is run.
+     *
+     * @param sessionRegistry registry of detached sessions, may be null - then player, who lost connection, leaves
+     */
+    public void setSessionRegistry(SessionRegistry sessionRegistry) {
+        this.sessionRegistry = sessionRegistry;
+        for (GameTable table : tables) {
+            table.setSessionRegistry(sessionRegistry);
         }
+    }
 
-        // on this phase, every player is one with his cards, so it's dealer turn to take cards
-        // need synchronization because dealer hand is shared object
-        while (!dealerHand.reachesDealerHit()) {
-            dealerHand.retrieveCardFromDeck(shoe);
+    /**
+     * Lets players at all tables ask for hints. Must be called before server is run.
+     *
+     * @param advisor strategy, shared by tables, may be null - then hints aren't available
+     */
+    public void setAdvisor(BasicStrategy advisor) {
+        for (GameTable table : tables) {
+            table.setAdvisor(advisor);
         }
+    }
+
+    /**
+     * Creates strategy, which gives hints to players, by {@link MultiplePlayerServer#HINT_PROPERTY} system
+     * property: "off" - no hints, "composition" - hints take into account cards, which remain in shoe,
+     * otherwise hints are given by infinite shoe table.
+     *
+     * @return strategy, or null if hints are off
+     */
+    static BasicStrategy createAdvisor() {
+        String mode = System.getProperty(HINT_PROPERTY, "basic");
+        if ("off".equals(mode)) return null;
+        return new BasicStrategy("composition".equals(mode), BasicStrategy.DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates registry of detached sessions with grace period in seconds, set by
+     * {@link MultiplePlayerServer#RESUME_GRACE_PROPERTY} system property (default is
+     * {@link SessionRegistry#DEFAULT_GRACE_MILLIS}).
+     *
+     * @return registry, or null if grace period is 0 - then sessions aren't resumed
+     */
+    static SessionRegistry createSessionRegistry() {
+        String grace = System.getProperty(RESUME_GRACE_PROPERTY);
+        long graceMillis = grace != null ? Long.valueOf(grace) * 1000 : SessionRegistry.DEFAULT_GRACE_MILLIS;
+        return graceMillis > 0 ? new SessionRegistry(graceMillis) : null;
+    }
+
+    /**
+     * Opens wallet in directory, set by {@link MultiplePlayerServer#WALLET_PROPERTY} system property.
+     * Wallet is closed, i.e. its last changes are written, when JVM exits. Problems of wallet are reported
+     * to {@link ServerLog}.
+     *
+     * @return wallet, or null if property isn't set
+     * @throws IOException if wallet can't be recovered
+     */
+    static Wallet openWallet() throws IOException {
+        String directory = System.getProperty(WALLET_PROPERTY);
+        if (directory == null) return null;
+        final Wallet wallet = new Wallet(new File(directory), new WalletLog() {
+            public void warn(String event, Object detail) {
+                ServerLog.warn(event, detail);
+            }
+
+            public void error(String event, Object detail) {
+                ServerLog.error(event, detail);
+            }
+        });
+        System.out.println(wallet);
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                wallet.close();
+            }
+        });
+        return wallet;
+    }
+
+    /**
+     * @return counters of all tables
+     */
+    public TableMetrics getMetrics() {
+        return metrics;
+    }
 
-        // final synchronization
-        try {
-            dealerDoneBarrier.await();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        } catch (BrokenBarrierException e) {
-            e.printStackTrace();
+    /**
+     * Starts tables, then accepts players until terminated.
+     */
+    public void run() {
+        System.out.println("Tables: " + tables.length + ". Allowed players at each table: " + maxBoxes);
+        registerMBean(metrics, "blackjack:type=Tables");
+        for (GameTable table : tables) {
+            registerMBean(table, "blackjack:type=Table,index=" + table.getTableIndex());
+            table.open();
         }
-        System.out.println("Round ends.");
+        super.run();
     }
 
-    public static void main(String... args) {
-        if (args.length != 1) {
+    /**
+     * Passes accepted player to lobby, which seats him at open table. Player waits in {@link LobbySession},
+     * which is served by loops in turn.
+     */
+    @Override
+    protected void onAccepted(SocketChannel channel) {
+        nextLoop().register(channel, lobbySessions);
+    }
+
+    /**
+     * Parses command line arguments and, if they are appropriate, starts multiplayer blackjack server.
+     *
+     * @param args must contain port for listening and, optionally, amount of tables, minimal amount
+     *             of players in round, maximal wait for players in seconds, timeout of players' bets
+     *             and decisions in seconds and "concurrent" for concurrent players' turns.
+     *             Rounds are journaled, if journal directory is set by {@link MultiplePlayerServer#JOURNAL_PROPERTY}
+     *             system property; players' money is kept, if wallet directory is set by
+     *             {@link MultiplePlayerServer#WALLET_PROPERTY} system property. Players could resume
+     *             sessions during grace period, set by {@link MultiplePlayerServer#RESUME_GRACE_PROPERTY};
+     *             hints are given in mode, set by {@link MultiplePlayerServer#HINT_PROPERTY}
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length < 1) {
             System.err.println("Wrong arguments.");
         } else {
             int port = Integer.valueOf(args[0]);
-            while (true) {
-                MultiplePlayerServer server = new MultiplePlayerServer(9001);
-                Thread gameRoundThread = new Thread(server);
-                gameRoundThread.start();
-                try {
-                    gameRoundThread.join();
-                } catch (InterruptedException e) {
-                    System.err.println("Waiting for round end interrupted.");
-                    return;
+            int tablesCount = args.length > 1 ? Integer.valueOf(args[1])
+                    : Runtime.getRuntime().availableProcessors();
+            int minPlayers = args.length > 2 ? Integer.valueOf(args[2]) : DEFAULT_MIN_PLAYERS;
+            long maxWaitMillis = args.length > 3 ? Long.valueOf(args[3]) * 1000 : DEFAULT_MAX_WAIT_MILLIS;
+            long betTimeoutMillis = args.length > 4 ? Long.valueOf(args[4]) * 1000
+                    : GameTable.DEFAULT_BET_TIMEOUT_MILLIS;
+            long actionTimeoutMillis = args.length > 4 ? Long.valueOf(args[4]) * 1000
+                    : GameTable.DEFAULT_ACTION_TIMEOUT_MILLIS;
+            ShoePool shoePool = new ShoePool(6, ArrayShoe.DEFAULT_PENETRATION, ShoePool.DEFAULT_DEPTH,
+                    new SecureShuffleRandom());
+            shoePool.start();
+            final MultiplePlayerServer server = new MultiplePlayerServer(port, tablesCount, minPlayers, maxWaitMillis,
+                    shoePool);
+            server.setTimeouts(betTimeoutMillis, actionTimeoutMillis);
+            server.setConcurrentTurns(args.length > 5 && "concurrent".equals(args[5]));
+            String journalDirectory = System.getProperty(JOURNAL_PROPERTY);
+            if (journalDirectory != null) server.setJournalDirectory(new File(journalDirectory));
+            server.setWallet(openWallet());
+            server.setSessionRegistry(createSessionRegistry());
+            server.setAdvisor(createAdvisor());
+            // metrics are printed when server is stopped
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run() {
+                    System.out.println(server.getServerMetrics());
+                    System.out.println(server.getMetrics());
                 }
-            }
+            });
+            server.run();
         }
     }
 }
-
@@ -0,0 +1,297 @@
+package blackjack.server;
+
+import blackjack.client.BinaryProtocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Non-blocking connection with player, served by {@link NioEventLoop}. Incoming bytes are collected
+ * in buffer until complete message is received ({@link AbstractPlayerHandler#TERMINATOR} in text protocol,
+ * complete frame in binary protocol), then message is passed to player's session. Outgoing messages
+ * are appended to one reusable buffer until {@link NioConnection#flush()}, then all of them are written
+ * by one write; the rest is written when channel is ready. Buffer grows only when messages don't fit,
+ * so sending a message allocates nothing.
+ * All methods must be called by loop's thread.
+ * @author yevhen bilous
+ */
+public class NioConnection extends AbstractPlayerConnection {
+
+    /**
+     * What connection passes to the next connection of the same channel: protocol, bytes, which weren't read
+     * or written yet, and messages, which its session received, but left for the next session.
+     */
+    static class State {
+        final boolean binary;
+        final ByteBuffer unread;
+        final ByteBuffer unwritten;
+        final List<String> messages;
+
+        State(boolean binary, ByteBuffer unread, ByteBuffer unwritten, List<String> messages) {
+            this.binary = binary;
+            this.unread = unread;
+            this.unwritten = unwritten;
+            this.messages = messages;
+        }
+    }
+
+    /**
+     * Maximal length of one message from player. Connection is closed if player sends longer message.
+     */
+    public static final int MAX_MESSAGE_SIZE = BinaryProtocol.MAX_FRAME_SIZE;
+    public static final int INITIAL_OUTGOING_SIZE = 4096;
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final NioEventLoop eventLoop;
+    private final ServerMetrics metrics;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(MAX_MESSAGE_SIZE);
+    // messages, which weren't written yet, from 0 to position
+    private ByteBuffer outgoing = ByteBuffer.allocate(INITIAL_OUTGOING_SIZE);
+    private PlayerSession session;
+    // true, while received messages are passed to session: then unread bytes are from position to limit
+    private boolean reading = false;
+    private boolean closeRequested = false;
+    private boolean closed = false;
+
+    public NioConnection(SocketChannel channel, SelectionKey key, NioEventLoop eventLoop, ServerMetrics metrics) {
+        this.channel = channel;
+        this.key = key;
+        this.eventLoop = eventLoop;
+        this.metrics = metrics;
+        metrics.connectionOpened();
+    }
+
+    /**
+     * Starts player's session on this connection. If connection continues previous connection of the channel,
+     * its unwritten bytes are written first, then its messages are passed to session, then its unread bytes
+     * are read.
+     *
+     * @param session session, which serves player
+     * @param state   state of previous connection, may be null
+     */
+    void start(PlayerSession session, State state) {
+        this.session = session;
+        if (state != null) {
+            binary = state.binary;
+            write(state.unwritten);
+            readBuffer.put(state.unread);
+        }
+        session.start();
+        if (state != null && state.messages != null) {
+            for (String message : state.messages) {
+                if (closed) break;
+                session.onMessage(message);
+            }
+        }
+        if (!closed && readBuffer.position() > 0) {
+            receiveMessages();
+        } else {
+            flush();
+        }
+    }
+
+    @Override
+    protected void write(ByteBuffer frame) {
+        if (closed || closeRequested) return;
+        if (outgoing.remaining() < frame.remaining()) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(outgoing.capacity() * 2,
+                    outgoing.position() + frame.remaining()));
+            outgoing.flip();
+            grown.put(outgoing);
+            outgoing = grown;
+        }
+        outgoing.put(frame);
+    }
+
+    /**
+     * Writes queued messages. If channel can't accept all of them, the rest is written when
+     * channel becomes writable.
+     */
+    public void flush() {
+        if (closed) return;
+        writeOutgoing();
+    }
+
+    /**
+     * Closes connection when all queued messages are written.
+     */
+    public void close() {
+        if (closed) return;
+        closeRequested = true;
+        writeOutgoing();
+    }
+
+    /**
+     * Reads available bytes and passes each complete message to session.
+     */
+    void onReadable() {
+        int read;
+        try {
+            read = channel.read(readBuffer);
+        } catch (IOException e) {
+            read = -1;
+        }
+        if (read == -1) {
+            closeNow();
+            return;
+        }
+        metrics.bytesReceived(read);
+        receiveMessages();
+    }
+
+    /**
+     * Passes each complete message in read buffer to session.
+     */
+    private void receiveMessages() {
+        readBuffer.flip();
+        reading = true;
+        try {
+            while (!closed && readBuffer.hasRemaining()) {
+                String message = binary ? readBinaryMessage() : readTextMessage();
+                if (message == null) break;
+                if (!upgradeRequested(message)) session.onMessage(message);
+            }
+            // all answers to received messages go out together
+            flush();
+        } catch (IllegalArgumentException e) {
+            ServerLog.warn("wrong message from player", e.getMessage());
+            closeNow();
+        }
+        if (closed) return;
+        readBuffer.compact();
+        reading = false;
+        if (!readBuffer.hasRemaining()) {
+            ServerLog.warn("too long message from player, disconnect");
+            closeNow();
+        }
+    }
+
+    /**
+     * Reads text message, which ends with {@link AbstractPlayerHandler#TERMINATOR}.
+     *
+     * @return message without protocol service symbols, or null if message is not received completely
+     */
+    private String readTextMessage() {
+        byte[] bytes = readBuffer.array();
+        for (int index = readBuffer.position(); index < readBuffer.limit(); index++) {
+            if (bytes[index] == AbstractPlayerHandler.TERMINATOR) {
+                String rawMessage = new String(bytes, readBuffer.position(), index - readBuffer.position(),
+                        StandardCharsets.UTF_8);
+                readBuffer.position(index + 1);
+                return AbstractPlayerHandler.getMessage(rawMessage);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads binary frame.
+     *
+     * @return text typed by player, or null if frame is not received completely
+     */
+    private String readBinaryMessage() {
+        if (BinaryProtocol.completeFrameSize(readBuffer) == -1) return null;
+        return BinaryProtocol.readClientText(readBuffer);
+    }
+
+    /**
+     * Continues writing of queued messages.
+     */
+    void onWritable() {
+        writeOutgoing();
+    }
+
+    /**
+     * Writes as many queued messages as channel accepts, with one write. If channel
+     * can't accept more, waits for it to become writable.
+     */
+    private void writeOutgoing() {
+        try {
+            if (outgoing.position() > 0) {
+                outgoing.flip();
+                metrics.bytesSent(channel.write(outgoing));
+                outgoing.compact();
+                if (outgoing.position() > 0) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            closeNow();
+            return;
+        }
+        key.interestOps(SelectionKey.OP_READ);
+        if (closeRequested) closeNow();
+    }
+
+    /**
+     * @return loop, which serves this connection
+     */
+    NioEventLoop getEventLoop() {
+        return eventLoop;
+    }
+
+    /**
+     * Passes channel to other session, which could be served by other loop: this connection is closed
+     * without closing channel and without notifying its session. Bytes, which weren't written or read yet,
+     * are passed to new connection.
+     *
+     * @param target         loop, which will serve channel
+     * @param sessionFactory returns session, which will serve player
+     */
+    void handOver(NioEventLoop target, SessionFactory sessionFactory) {
+        handOver(target, sessionFactory, null);
+    }
+
+    /**
+     * Passes channel to other session, like {@link NioConnection#handOver(NioEventLoop, SessionFactory)}, with
+     * messages, which were received by this connection's session, but must be handled by new session.
+     *
+     * @param target         loop, which will serve channel
+     * @param sessionFactory returns session, which will serve player
+     * @param messages       messages for new session, may be null
+     */
+    void handOver(NioEventLoop target, SessionFactory sessionFactory, List<String> messages) {
+        if (closed) return;
+        closed = true;
+        metrics.connectionClosed();
+        ByteBuffer unread = readBuffer.duplicate();
+        if (!reading) unread.flip();
+        ByteBuffer unwritten = outgoing.duplicate();
+        unwritten.flip();
+        State state = new State(binary, copy(unread), copy(unwritten), messages);
+        outgoing.clear();
+        // channel stays registered in this loop's selector until its next select, but it's not served anymore
+        key.cancel();
+        target.register(channel, sessionFactory, state);
+    }
+
+    private static ByteBuffer copy(ByteBuffer bytes) {
+        ByteBuffer copy = ByteBuffer.allocate(bytes.remaining());
+        copy.put(bytes);
+        copy.flip();
+        return copy;
+    }
+
+    /**
+     * Closes channel immediately and notifies session.
+     */
+    void closeNow() {
+        if (closed) return;
+        closed = true;
+        metrics.connectionClosed();
+        outgoing.clear();
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            ServerLog.warn("unable to close client's channel", e);
+        }
+        if (session != null) session.onDisconnect();
+    }
+}
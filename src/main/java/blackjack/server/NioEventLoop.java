@@ -0,0 +1,206 @@
+package blackjack.server;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event loop, which serves many non-blocking connections by one thread: waits on {@link Selector}
+ * until some channels are ready, reads and writes them, and runs game sessions on complete messages.
+ * Sessions are always run by loop's thread, so they need no synchronization. Other threads pass work
+ * to sessions through {@link NioEventLoop#execute(Runnable)}; delayed work is scheduled by shared timer
+ * and is run by loop's thread too.
+ * @author yevhen bilous
+ */
+public class NioEventLoop implements Runnable {
+
+    /**
+     * Accepted channel, waiting to be registered in loop's selector.
+     */
+    private static class Registration {
+        final SocketChannel channel;
+        final SessionFactory sessionFactory;
+        final NioConnection.State state;
+
+        Registration(SocketChannel channel, SessionFactory sessionFactory, NioConnection.State state) {
+            this.channel = channel;
+            this.sessionFactory = sessionFactory;
+            this.state = state;
+        }
+    }
+
+    private final Selector selector;
+    private final SessionFactory sessionFactory;
+    private final ScheduledExecutorService timer;
+    private final ServerMetrics metrics;
+    private final Queue<Registration> newChannels = new ConcurrentLinkedQueue<Registration>();
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+    private volatile boolean running = true;
+
+    /**
+     * @param sessionFactory creates game session for each connection, registered without its own factory;
+     *                       may be null, if each connection is registered with its own factory
+     * @param timer          timer, shared by loops; it only passes scheduled tasks to loops
+     * @param metrics        connection counters, shared by loops
+     * @throws IOException if selector can't be opened
+     */
+    public NioEventLoop(SessionFactory sessionFactory, ScheduledExecutorService timer, ServerMetrics metrics)
+            throws IOException {
+        this.selector = Selector.open();
+        this.sessionFactory = sessionFactory;
+        this.timer = timer;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Passes accepted channel to this loop. Could be called from any thread.
+     *
+     * @param channel accepted channel
+     */
+    public void register(SocketChannel channel) {
+        register(channel, sessionFactory);
+    }
+
+    /**
+     * Passes accepted channel to this loop, which serves it by session from specified factory.
+     * Could be called from any thread.
+     *
+     * @param channel        accepted channel
+     * @param sessionFactory creates game session for this connection
+     */
+    public void register(SocketChannel channel, SessionFactory sessionFactory) {
+        register(channel, sessionFactory, null);
+    }
+
+    /**
+     * Passes channel, which was served by other connection, to this loop. Could be called from any thread.
+     *
+     * @param channel        channel of player
+     * @param sessionFactory creates game session for this connection
+     * @param state          state of previous connection, which new connection continues; may be null
+     */
+    void register(SocketChannel channel, SessionFactory sessionFactory, NioConnection.State state) {
+        newChannels.add(new Registration(channel, sessionFactory, state));
+        selector.wakeup();
+    }
+
+    /**
+     * Runs task by loop's thread. Could be called from any thread.
+     *
+     * @param task task, which works with loop's sessions
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Runs task by loop's thread after specified delay. Could be called from any thread. Cancelled task
+     * may still run, if it was already passed to loop, so task must check that it's still actual.
+     *
+     * @param task  task, which works with loop's sessions
+     * @param delay delay before run
+     * @param unit  unit of delay
+     * @return future, which could be used to cancel task
+     */
+    public ScheduledFuture<?> schedule(final Runnable task, long delay, TimeUnit unit) {
+        return timer.schedule(new Runnable() {
+            public void run() {
+                execute(task);
+            }
+        }, delay, unit);
+    }
+
+    /**
+     * Stops loop after current iteration.
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    public void run() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                ServerLog.error("selector failed", e);
+                break;
+            }
+            registerNewChannels();
+            runTasks();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                NioConnection connection = (NioConnection) key.attachment();
+                if (!key.isValid()) {
+                    connection.closeNow();
+                    continue;
+                }
+                try {
+                    if (key.isReadable()) connection.onReadable();
+                    if (key.isValid() && key.isWritable()) connection.onWritable();
+                } catch (RuntimeException e) {
+                    // one broken session must not stop the loop, which serves other players
+                    ServerLog.error("session failed", e);
+                    connection.closeNow();
+                }
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            ServerLog.warn("unable to close selector", e);
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                ServerLog.error("task failed", e);
+            }
+        }
+    }
+
+    private void registerNewChannels() {
+        Registration registration;
+        while ((registration = newChannels.poll()) != null) {
+            SocketChannel channel = registration.channel;
+            NioConnection connection = null;
+            try {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                connection = new NioConnection(channel, key, this, metrics);
+                key.attach(connection);
+                connection.start(registration.sessionFactory.createSession(connection), registration.state);
+            } catch (IOException e) {
+                ServerLog.warn("unable to register client's channel", e);
+                closeChannel(channel);
+            } catch (RuntimeException e) {
+                // session, which failed to start, must not stop the loop, which serves other players
+                ServerLog.error("unable to start session", e);
+                if (connection != null) connection.closeNow();
+                else closeChannel(channel);
+            }
+        }
+    }
+
+    private void closeChannel(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            ServerLog.warn("unable to close client's channel", e);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package blackjack.server;
+
+import blackjack.cards.ArrayShoe;
+import blackjack.cards.SecureShuffleRandom;
+import blackjack.cards.ShoePool;
+import blackjack.journal.JournalWriter;
+import blackjack.simulation.BasicStrategy;
+import blackjack.wallet.Wallet;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Non-blocking blackjack server: instead of thread per player, a few {@link NioEventLoop} threads serve
+ * all connections. Server thread only accepts connections and distributes them between loops in turn.
+ * Game logic is supplied by {@link SessionFactory}; by default each player gets single-player game.
+ * Loops share one timer thread, which passes delayed tasks to them.
+ * Connection counters are published through JMX as {@link ServerMetricsMXBean}.
+ *
+ * @author yevhen bilous
+ */
+public class NioServer implements Runnable {
+
+    protected int serverPort = 9001;
+    protected final NioEventLoop[] eventLoops;
+    protected final ScheduledExecutorService timer;
+    protected final ServerMetrics serverMetrics = new ServerMetrics();
+    private int nextLoop = 0;
+
+    /**
+     * @param port           listening port
+     * @param loopsCount     amount of event loop threads
+     * @param sessionFactory creates game session for each accepted connection; may be null, if subclass
+     *                       registers connections with their own factories
+     * @throws IOException if event loops' selectors can't be opened
+     */
+    public NioServer(int port, int loopsCount, SessionFactory sessionFactory) throws IOException {
+        this.serverPort = port;
+        timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        eventLoops = new NioEventLoop[loopsCount];
+        for (int index = 0; index < loopsCount; index++) {
+            eventLoops[index] = new NioEventLoop(sessionFactory, timer, serverMetrics);
+        }
+    }
+
+    /**
+     * @return connection counters of server
+     */
+    public ServerMetrics getServerMetrics() {
+        return serverMetrics;
+    }
+
+    /**
+     * Starts event loops, then accepts connections until terminated.
+     */
+    public void run() {
+        registerMBean(serverMetrics, "blackjack:type=Server");
+        ServerSocketChannel serverChannel;
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(serverPort));
+        } catch (IOException e) {
+            System.err.println("Exception in creating server socket");
+            return;
+        }
+        for (int index = 0; index < eventLoops.length; index++) {
+            new Thread(eventLoops[index], "event-loop-" + index).start();
+        }
+        System.out.println("Server started.");
+        ServerLog.info("server started", "port", serverPort);
+        while (serverChannel.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                System.err.println("Fail to work with server socket.");
+                continue;
+            }
+            serverMetrics.connectionAccepted();
+            onAccepted(channel);
+        }
+    }
+
+    /**
+     * Publishes metrics through platform's MBean server. Server works without JMX, if metrics can't be published.
+     *
+     * @param mbean metrics
+     * @param name  object name of MBean
+     */
+    protected void registerMBean(Object mbean, String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, new ObjectName(name));
+        } catch (JMException e) {
+            System.err.println("Unable to publish metrics " + name + ": " + e);
+        }
+    }
+
+    /**
+     * Passes accepted connection to event loops in turn. Called by server's thread.
+     *
+     * @param channel accepted channel
+     */
+    protected void onAccepted(SocketChannel channel) {
+        nextLoop().register(channel);
+    }
+
+    /**
+     * @return loop, which serves next accepted connection; loops are taken in turn
+     */
+    protected NioEventLoop nextLoop() {
+        NioEventLoop eventLoop = eventLoops[nextLoop];
+        nextLoop = (nextLoop + 1) % eventLoops.length;
+        return eventLoop;
+    }
+
+    /**
+     * Parses command line arguments and, if they are appropriate, starts non-blocking
+     * single player blackjack server.
+     *
+     * @param args must contain port for listening and, optionally, amount of event loops.
+     *             Rounds are journaled, if journal directory is set by
+     *             {@link MultiplePlayerServer#JOURNAL_PROPERTY} system property: each loop has its own journal.
+     *             Players' money is kept, if wallet directory is set by
+     *             {@link MultiplePlayerServer#WALLET_PROPERTY} system property. Players could resume
+     *             sessions during grace period, set by {@link MultiplePlayerServer#RESUME_GRACE_PROPERTY};
+     *             hints are given in mode, set by {@link MultiplePlayerServer#HINT_PROPERTY}
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("You need to specify port as argument to start server.");
+            return;
+        }
+        int port = Integer.valueOf(args[0]);
+        int loopsCount = args.length > 1 ? Integer.valueOf(args[1]) : Runtime.getRuntime().availableProcessors();
+        final ShoePool shoePool = new ShoePool(6, ArrayShoe.DEFAULT_PENETRATION, ShoePool.DEFAULT_DEPTH,
+                new SecureShuffleRandom());
+        shoePool.start();
+        String journalProperty = System.getProperty(MultiplePlayerServer.JOURNAL_PROPERTY);
+        final File journalDirectory = journalProperty != null ? new File(journalProperty) : null;
+        final Collection<JournalWriter> journals = new ConcurrentLinkedQueue<JournalWriter>();
+        MultiplePlayerServer.closeOnExit(journals);
+        // sessions are created and run by loop's thread, so sessions of one loop share loop's journal
+        final ThreadLocal<JournalWriter> loopJournals = new ThreadLocal<JournalWriter>() {
+            protected JournalWriter initialValue() {
+                if (journalDirectory == null) return null;
+                try {
+                    JournalWriter journal = new JournalWriter(journalDirectory, Thread.currentThread().getName());
+                    journals.add(journal);
+                    return journal;
+                } catch (IOException e) {
+                    ServerLog.error("unable to create journal", e);
+                    return null;
+                }
+            }
+        };
+        final Wallet wallet = MultiplePlayerServer.openWallet();
+        final SessionRegistry sessionRegistry = MultiplePlayerServer.createSessionRegistry();
+        final BasicStrategy advisor = MultiplePlayerServer.createAdvisor();
+        NioServer server = new NioServer(port, loopsCount, new SessionFactory() {
+            public PlayerSession createSession(PlayerConnection connection) {
+                SinglePlayerSession session = new SinglePlayerSession(connection, shoePool, 100, 1, loopJournals.get());
+                session.setWallet(wallet);
+                session.setSessionRegistry(sessionRegistry);
+                session.setAdvisor(advisor);
+                return session;
+            }
+        });
+        new Thread(server).start();
+    }
+}
@@ -0,0 +1,52 @@
+package blackjack.server;
+
+import blackjack.cards.Hand;
+import blackjack.client.AmountKind;
+import blackjack.client.ClientMode;
+import blackjack.client.HandOwner;
+
+/**
+ * Connection with one player, as it's seen by game logic: game sends messages to player and
+ * closes connection, but doesn't know how messages are delivered and encoded.
+ * Sent messages may be buffered until {@link PlayerConnection#flush()} is called, so all messages
+ * of one game step reach player together.
+ * @author yevhen bilous
+ */
+public interface PlayerConnection {
+
+    /**
+     * Sends message to player.
+     *
+     * @param mode     Mode, which client will switched to after receiving message
+     * @param messages Text information, passed from server to player
+     */
+    void sendMessage(ClientMode mode, String... messages);
+
+    /**
+     * Sends cards of one hand to player.
+     *
+     * @param mode  Mode, which client will switched to after receiving message
+     * @param owner owner of cards
+     * @param hand  cards
+     */
+    void sendCards(ClientMode mode, HandOwner owner, Hand hand);
+
+    /**
+     * Sends money amount to player.
+     *
+     * @param mode   Mode, which client will switched to after receiving message
+     * @param kind   meaning of amount
+     * @param amount money amount
+     */
+    void sendAmount(ClientMode mode, AmountKind kind, int amount);
+
+    /**
+     * Delivers all buffered messages.
+     */
+    void flush();
+
+    /**
+     * Closes connection. Messages, which were sent before, are still delivered.
+     */
+    void close();
+}
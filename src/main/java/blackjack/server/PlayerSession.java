@@ -0,0 +1,32 @@
+package blackjack.server;
+
+/**
+ * Game logic for one connected player, written as state machine: it doesn't read anything by itself,
+ * but reacts on complete messages received from player. So the same session could be driven by
+ * a thread blocked on socket, or by event loop which serves many connections.
+ * @author yevhen bilous
+ */
+public interface PlayerSession {
+
+    /**
+     * Called once, when connection with player is established.
+     */
+    void start();
+
+    /**
+     * Called for each message received from player.
+     *
+     * @param message text message, without protocol service symbols
+     */
+    void onMessage(String message);
+
+    /**
+     * Called once, when connection with player was lost or closed.
+     */
+    void onDisconnect();
+
+    /**
+     * @return true, if session has ended and connection should be closed
+     */
+    boolean isFinished();
+}
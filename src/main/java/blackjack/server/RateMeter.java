@@ -0,0 +1,49 @@
+package blackjack.server;
+
+/**
+ * Computes rate of growing counter over last {@link RateMeter#WINDOW_NANOS}, so monitoring tool, which polls
+ * attribute, gets current rate instead of average since start. Counter is sampled at most once per
+ * {@link RateMeter#SAMPLE_NANOS} when rate is read, and rate is measured from the oldest sample in window,
+ * so several tools, which poll the same attribute, get the same rate.
+ * @author yevhen bilous
+ */
+class RateMeter {
+
+    static final long WINDOW_NANOS = 10000000000L;
+    static final long SAMPLE_NANOS = 1000000000L;
+
+    // ring of samples, which are at least SAMPLE_NANOS apart, so it covers the whole window
+    private final long[] times = new long[(int) (WINDOW_NANOS / SAMPLE_NANOS) + 1];
+    private final long[] values = new long[times.length];
+    private int newest = 0;
+    private int count = 1;
+
+    RateMeter() {
+        times[0] = System.nanoTime();
+    }
+
+    /**
+     * @param value current value of counter
+     * @return counter's growth per second during last window, or since the previous sample,
+     * if counter wasn't sampled during the window
+     */
+    synchronized double perSecond(long value) {
+        long now = System.nanoTime();
+        if (now - times[newest] >= SAMPLE_NANOS) {
+            newest = (newest + 1) % times.length;
+            times[newest] = now;
+            values[newest] = value;
+            count = Math.min(count + 1, times.length);
+        }
+        // the oldest sample in window, which was taken before this read
+        int base = -1;
+        for (int age = count - 1; age >= 0; age--) {
+            int index = (newest - age + times.length) % times.length;
+            if (now == times[index]) break;
+            base = index;
+            if (now - times[index] <= WINDOW_NANOS) break;
+        }
+        if (base == -1) return 0;
+        return (value - values[base]) * 1e9 / (now - times[base]);
+    }
+}
@@ -0,0 +1,294 @@
+package blackjack.server;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous log of server's events. Game threads never write to file and never wait for each other:
+ * event is copied into preallocated slot of bounded lock-free ring buffer, and one background thread
+ * formats events and writes them to file. If buffer is full, event is dropped and counted.
+ * Events are structured: name of event and up to three named numeric values (and optional detail, e.g. exception),
+ * so logging allocates nothing on game thread; event is formatted as text only by background thread.
+ * <p>
+ * File and level are set by system properties {@link ServerLog#FILE_PROPERTY} (default is
+ * {@link ServerLog#DEFAULT_FILE}) and {@link ServerLog#LEVEL_PROPERTY} (default is INFO).
+ * @author yevhen bilous
+ */
+public final class ServerLog implements Runnable {
+
+    public static final String FILE_PROPERTY = "blackjack.log";
+    public static final String LEVEL_PROPERTY = "blackjack.log.level";
+    public static final String DEFAULT_FILE = "blackjack-server.log";
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private static final ServerLog instance = start();
+
+    /**
+     * Slot of ring buffer. Slot's sequence tells whether slot is free for producer or filled for consumer.
+     */
+    private static final class Event {
+        volatile long sequence;
+        long time;
+        LogLevel level;
+        String thread;
+        String name;
+        String key1;
+        long value1;
+        String key2;
+        long value2;
+        String key3;
+        long value3;
+        Object detail;
+
+        Event(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    private final Event[] ring;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final LogLevel level;
+    private final Writer out;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    private final StringBuilder line = new StringBuilder(256);
+    // used only by background thread
+    private long head = 0;
+    private long reportedDropped = 0;
+    private volatile boolean running = true;
+    private volatile Thread writerThread;
+
+    /**
+     * @param out      destination of formatted events, used only by background thread
+     * @param level    minimal level of logged events
+     * @param capacity capacity of buffer, must be power of two
+     */
+    ServerLog(Writer out, LogLevel level, int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be power of two: " + capacity);
+        }
+        this.out = out;
+        this.level = level;
+        this.ring = new Event[capacity];
+        this.mask = capacity - 1;
+        for (int index = 0; index < capacity; index++) {
+            ring[index] = new Event(index);
+        }
+    }
+
+    private static ServerLog start() {
+        String file = System.getProperty(FILE_PROPERTY, DEFAULT_FILE);
+        LogLevel level = LogLevel.valueOf(System.getProperty(LEVEL_PROPERTY, LogLevel.INFO.name()));
+        Writer out;
+        try {
+            out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("Unable to open log file " + file + ", log is written to console: " + e);
+            out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+        }
+        final ServerLog log = new ServerLog(out, level, DEFAULT_CAPACITY);
+        Thread thread = new Thread(log, "log-writer");
+        thread.setDaemon(true);
+        log.writerThread = thread;
+        thread.start();
+        // events, which are still in buffer, are written before JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                log.stop();
+            }
+        });
+        return log;
+    }
+
+    public static void debug(String name, String key1, long value1, String key2, long value2) {
+        instance.log(LogLevel.DEBUG, name, key1, value1, key2, value2, null, 0, null);
+    }
+
+    public static void info(String name) {
+        instance.log(LogLevel.INFO, name, null, 0, null, 0, null, 0, null);
+    }
+
+    public static void info(String name, String key1, long value1) {
+        instance.log(LogLevel.INFO, name, key1, value1, null, 0, null, 0, null);
+    }
+
+    public static void info(String name, String key1, long value1, String key2, long value2) {
+        instance.log(LogLevel.INFO, name, key1, value1, key2, value2, null, 0, null);
+    }
+
+    public static void info(String name, String key1, long value1, String key2, long value2,
+                            String key3, long value3) {
+        instance.log(LogLevel.INFO, name, key1, value1, key2, value2, key3, value3, null);
+    }
+
+    /**
+     * Logs event with detail, which is converted to text by background thread, so it must not be changed
+     * after it was logged.
+     */
+    public static void info(String name, String key1, long value1, Object detail) {
+        instance.log(LogLevel.INFO, name, key1, value1, null, 0, null, 0, detail);
+    }
+
+    public static void info(String name, String key1, long value1, String key2, long value2, Object detail) {
+        instance.log(LogLevel.INFO, name, key1, value1, key2, value2, null, 0, detail);
+    }
+
+    public static void warn(String name) {
+        instance.log(LogLevel.WARN, name, null, 0, null, 0, null, 0, null);
+    }
+
+    public static void warn(String name, Object detail) {
+        instance.log(LogLevel.WARN, name, null, 0, null, 0, null, 0, detail);
+    }
+
+    public static void error(String name, Object detail) {
+        instance.log(LogLevel.ERROR, name, null, 0, null, 0, null, 0, detail);
+    }
+
+    /**
+     * @return amount of events, dropped because buffer was full
+     */
+    public static long getDroppedCount() {
+        return instance.dropped.sum();
+    }
+
+    /**
+     * Puts event in buffer, or drops it if buffer is full. Could be called from any thread, never blocks.
+     */
+    void log(LogLevel eventLevel, String name, String key1, long value1, String key2, long value2,
+             String key3, long value3, Object detail) {
+        if (eventLevel.compareTo(level) < 0) return;
+        long position = tail.get();
+        Event event;
+        while (true) {
+            event = ring[(int) position & mask];
+            long difference = event.sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+                position = tail.get();
+            } else if (difference < 0) {
+                // slot still keeps event, which was put one lap ago and isn't written yet
+                dropped.increment();
+                return;
+            } else {
+                position = tail.get();
+            }
+        }
+        event.time = System.currentTimeMillis();
+        event.level = eventLevel;
+        event.thread = Thread.currentThread().getName();
+        event.name = name;
+        event.key1 = key1;
+        event.value1 = value1;
+        event.key2 = key2;
+        event.value2 = value2;
+        event.key3 = key3;
+        event.value3 = value3;
+        event.detail = detail;
+        // publishes event to background thread
+        event.sequence = position + 1;
+    }
+
+    /**
+     * Writes events until stopped; when buffer is empty, flushes file and waits a little.
+     */
+    public void run() {
+        while (running) {
+            if (!drain()) {
+                flushOut();
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        drain();
+        flushOut();
+    }
+
+    /**
+     * Stops background thread after all buffered events are written.
+     */
+    void stop() {
+        running = false;
+        Thread thread = writerThread;
+        if (thread == null) return;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes all published events.
+     *
+     * @return true, if at least one event was written
+     */
+    private boolean drain() {
+        boolean written = false;
+        while (true) {
+            Event event = ring[(int) head & mask];
+            if (event.sequence != head + 1) break;
+            format(event);
+            event.thread = null;
+            event.name = null;
+            event.key1 = null;
+            event.key2 = null;
+            event.key3 = null;
+            event.detail = null;
+            // slot is free for event, which will be put one lap later
+            event.sequence = head + ring.length;
+            head++;
+            write();
+            written = true;
+        }
+        long droppedNow = dropped.sum();
+        if (droppedNow != reportedDropped) {
+            line.setLength(0);
+            line.append(dateFormat.format(new Date())).append(' ').append(LogLevel.WARN).append(" log-writer ")
+                    .append("events dropped count=").append(droppedNow - reportedDropped).append('\n');
+            reportedDropped = droppedNow;
+            write();
+        }
+        return written;
+    }
+
+    private void format(Event event) {
+        line.setLength(0);
+        line.append(dateFormat.format(new Date(event.time))).append(' ').append(event.level).append(' ')
+                .append(event.thread).append(' ').append(event.name);
+        if (event.key1 != null) line.append(' ').append(event.key1).append('=').append(event.value1);
+        if (event.key2 != null) line.append(' ').append(event.key2).append('=').append(event.value2);
+        if (event.key3 != null) line.append(' ').append(event.key3).append('=').append(event.value3);
+        if (event.detail != null) line.append(' ').append(event.detail);
+        line.append('\n');
+    }
+
+    private void write() {
+        try {
+            out.append(line);
+        } catch (IOException e) {
+            System.err.println("Unable to write log: " + e);
+        }
+    }
+
+    private void flushOut() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Unable to write log: " + e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package blackjack.server;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection-level counters of {@link NioServer}. Counters are updated by acceptor's thread and all event loops,
+ * so {@link LongAdder}s are used: each updating thread mostly works with its own cell.
+ * @author yevhen bilous
+ */
+public class ServerMetrics implements ServerMetricsMXBean {
+
+    private final LongAdder acceptedConnections = new LongAdder();
+    private final LongAdder activeConnections = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final RateMeter acceptRate = new RateMeter();
+
+    void connectionAccepted() {
+        acceptedConnections.increment();
+    }
+
+    void connectionOpened() {
+        activeConnections.increment();
+    }
+
+    void connectionClosed() {
+        activeConnections.decrement();
+    }
+
+    void bytesReceived(long bytes) {
+        bytesReceived.add(bytes);
+    }
+
+    void bytesSent(long bytes) {
+        bytesSent.add(bytes);
+    }
+
+    public long getAcceptedConnections() {
+        return acceptedConnections.sum();
+    }
+
+    public double getAcceptRate() {
+        return acceptRate.perSecond(getAcceptedConnections());
+    }
+
+    public long getActiveConnections() {
+        return activeConnections.sum();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public long getLogEventsDropped() {
+        return ServerLog.getDroppedCount();
+    }
+
+    public String toString() {
+        return "Connections: accepted " + getAcceptedConnections() + ", active " + getActiveConnections()
+                + ", bytes received " + getBytesReceived() + ", bytes sent " + getBytesSent()
+                + ", log events dropped " + getLogEventsDropped();
+    }
+}
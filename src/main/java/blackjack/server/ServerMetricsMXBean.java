@@ -0,0 +1,26 @@
+package blackjack.server;
+
+/**
+ * Connection-level counters of {@link NioServer}, published through JMX.
+ * @author yevhen bilous
+ */
+public interface ServerMetricsMXBean {
+
+    long getAcceptedConnections();
+
+    /**
+     * @return accepted connections per second during last 10 seconds
+     */
+    double getAcceptRate();
+
+    long getActiveConnections();
+
+    long getBytesReceived();
+
+    long getBytesSent();
+
+    /**
+     * @return amount of log events, dropped because log's buffer was full
+     */
+    long getLogEventsDropped();
+}
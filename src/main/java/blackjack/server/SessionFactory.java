@@ -0,0 +1,14 @@
+package blackjack.server;
+
+/**
+ * Creates game session for each accepted connection.
+ * @author yevhen bilous
+ */
+public interface SessionFactory {
+
+    /**
+     * @param connection newly accepted connection
+     * @return session, which will serve player on this connection
+     */
+    PlayerSession createSession(PlayerConnection connection);
+}
@@ -0,0 +1,109 @@
+package blackjack.server;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps sessions of dropped connections for grace period, so player could reconnect and continue the same
+ * session: with the same seat, hand and bet. Each session gets random token when it starts; player, whose
+ * connection was lost, reconnects and sends token in {@link blackjack.client.BlackjackClient#RESUME_PREFIX}
+ * message. Then new connection's channel is passed to event loop of detached session, and session is started
+ * again on it, so session resends its current state instead of starting new game.
+ * <p>
+ * Only detached sessions are kept. Session is either resumed or expired, never both: whoever removes it first
+ * - reconnected player or expiry task - gets it. Could be used by any thread.
+ * @author yevhen bilous
+ */
+public class SessionRegistry {
+
+    public static final long DEFAULT_GRACE_MILLIS = 30000;
+
+    /**
+     * Session, which waits for its player.
+     */
+    private static class Detached {
+        final SessionFactory resumption;
+        final NioEventLoop eventLoop;
+
+        Detached(SessionFactory resumption, NioEventLoop eventLoop) {
+            this.resumption = resumption;
+            this.eventLoop = eventLoop;
+        }
+    }
+
+    private final long graceMillis;
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentHashMap<String, Detached> detachedSessions = new ConcurrentHashMap<String, Detached>();
+
+    /**
+     * @param graceMillis time, during which detached session waits for its player
+     */
+    public SessionRegistry(long graceMillis) {
+        this.graceMillis = graceMillis;
+    }
+
+    /**
+     * @return new unguessable token of session
+     */
+    public String newToken() {
+        return String.format("%016x%016x", random.nextLong(), random.nextLong());
+    }
+
+    /**
+     * Keeps session of dropped connection until grace period is over. Must be called by loop's thread,
+     * which served the connection.
+     *
+     * @param token      session's token
+     * @param resumption attaches session to new connection and returns it; it's called by the same loop
+     * @param connection dropped connection
+     * @param expiry     task, which ends session if player didn't come back in time; it's run by the same loop
+     * @return false, if session can't be kept, because connection isn't served by event loop
+     */
+    public boolean detach(final String token, SessionFactory resumption, PlayerConnection connection,
+                          final Runnable expiry) {
+        if (!(connection instanceof NioConnection)) return false;
+        NioEventLoop eventLoop = ((NioConnection) connection).getEventLoop();
+        final Detached detached = new Detached(resumption, eventLoop);
+        detachedSessions.put(token, detached);
+        eventLoop.schedule(new Runnable() {
+            public void run() {
+                if (detachedSessions.remove(token, detached)) expiry.run();
+            }
+        }, graceMillis, TimeUnit.MILLISECONDS);
+        ServerLog.info("session detached", "sessions", detachedSessions.size());
+        return true;
+    }
+
+    /**
+     * Passes new connection to detached session with specified token. Connection is closed for its current
+     * session without notification, so current session must end by itself.
+     *
+     * @param token      token, sent by player
+     * @param connection new connection of player
+     * @return false, if there is no such detached session
+     */
+    public boolean resume(String token, PlayerConnection connection) {
+        if (!(connection instanceof NioConnection)) return false;
+        Detached detached = detachedSessions.remove(token);
+        if (detached == null) return false;
+        ((NioConnection) connection).handOver(detached.eventLoop, detached.resumption);
+        return true;
+    }
+
+    /**
+     * Forgets detached session, which has ended while it waited for player.
+     *
+     * @param token session's token
+     */
+    public void forget(String token) {
+        detachedSessions.remove(token);
+    }
+
+    /**
+     * @return amount of sessions, which wait for their players
+     */
+    public int getDetachedCount() {
+        return detachedSessions.size();
+    }
+}
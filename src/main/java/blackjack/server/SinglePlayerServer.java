@@ -1,5 +1,11 @@
 package blackjack.server;
 
+import blackjack.cards.ArrayShoe;
+import blackjack.cards.SecureShuffleRandom;
+import blackjack.cards.ShoePool;
+import blackjack.simulation.BasicStrategy;
+import blackjack.wallet.Wallet;
+
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
@@ -7,7 +13,8 @@ import java.net.Socket;
 /**
  * Represents single-player blackjack server. In fact, many users can connect, but each wiil have
  * separate game with dealer. Server creates server socket with unlimited possible connections and
- * creates separate thread for handling each separate player.
+ * creates separate thread for handling each separate player. Shuffled shoes for all players are prepared
+ * in background by shared {@link ShoePool}.
  *
  * @author bilous yevhen
  */
@@ -15,9 +22,39 @@ public class SinglePlayerServer implements Runnable {
 
     protected int serverPort = 9001;
     protected ServerSocket serverSocket = null;
+    protected final ShoePool shoePool;
+    protected Wallet wallet = null;
+    protected BasicStrategy advisor = null;
 
     public SinglePlayerServer(int port) {
+        this(port, ShoePool.DEFAULT_DEPTH);
+    }
+
+    /**
+     * @param port      listening port
+     * @param poolDepth amount of shuffled shoes, prepared in advance
+     */
+    public SinglePlayerServer(int port, int poolDepth) {
         this.serverPort = port;
+        this.shoePool = new ShoePool(6, ArrayShoe.DEFAULT_PENETRATION, poolDepth, new SecureShuffleRandom());
+    }
+
+    /**
+     * Makes handlers keep money of identified players in specified wallet. Must be called before server is run.
+     *
+     * @param wallet wallet of players' accounts, may be null
+     */
+    public void setWallet(Wallet wallet) {
+        this.wallet = wallet;
+    }
+
+    /**
+     * Makes handlers give hints to players by specified strategy. Must be called before server is run.
+     *
+     * @param advisor strategy, shared by handlers, may be null - then hints aren't available
+     */
+    public void setAdvisor(BasicStrategy advisor) {
+        this.advisor = advisor;
     }
 
     /**
@@ -26,6 +63,7 @@ public class SinglePlayerServer implements Runnable {
      */
     public void run() {
         System.out.println("Server started.");
+        shoePool.start();
         try {
             serverSocket = new ServerSocket(serverPort);
         } catch (IOException e) {
@@ -41,7 +79,7 @@ public class SinglePlayerServer implements Runnable {
                 System.err.println("Fail to work with server socket.");
             }
             if (connectionSuccess)
-                new Thread(new SinglePlayerHandler(clientSocket)).start();
+                new Thread(new SinglePlayerHandler(clientSocket, shoePool, wallet, advisor)).start();
         }
     }
 
@@ -49,15 +87,21 @@ public class SinglePlayerServer implements Runnable {
      * Parses command line arguments and, if they are appropriate, starts single player
      * blackjack server.
      *
-     * @param args must contain one argument: port for listening
+     * @param args must contain port for listening and, optionally, shoe pool depth.
+     *             Players' money is kept, if wallet directory is set by
+     *             {@link MultiplePlayerServer#WALLET_PROPERTY} system property; hints are given in mode, set by
+     *             {@link MultiplePlayerServer#HINT_PROPERTY}
      */
-    public static void main(String... args) {
+    public static void main(String... args) throws IOException {
         System.out.println(args[0]);
         if (args.length == 0) {
             System.err.println("You need to specify port as argument to start server.");
         } else {
             int port = Integer.valueOf(args[0]);
-            SinglePlayerServer single = new SinglePlayerServer(port);
+            int poolDepth = args.length > 1 ? Integer.valueOf(args[1]) : ShoePool.DEFAULT_DEPTH;
+            SinglePlayerServer single = new SinglePlayerServer(port, poolDepth);
+            single.setWallet(MultiplePlayerServer.openWallet());
+            single.setAdvisor(MultiplePlayerServer.createAdvisor());
             new Thread(single).start();
         }
     }
@@ -0,0 +1,472 @@
+package blackjack.server;
+
+import blackjack.cards.ArrayShoe;
+import blackjack.cards.GameResult;
+import blackjack.cards.Hand;
+import blackjack.cards.PlayerDecision;
+import blackjack.cards.ShoePool;
+import blackjack.client.AmountKind;
+import blackjack.client.BlackjackClient;
+import blackjack.client.ClientMode;
+import blackjack.client.HandOwner;
+import blackjack.journal.JournalWriter;
+import blackjack.simulation.BasicStrategy;
+import blackjack.wallet.Account;
+import blackjack.wallet.Wallet;
+
+/**
+ * Single-player blackjack game, written as state machine driven by player's messages. Each message
+ * moves game from one waiting state to another: bet, HIT/STAND/DOUBLE decisions, "another round" answer.
+ * Session never blocks, so it could be driven both by {@link SinglePlayerHandler} thread and by
+ * {@link NioServer} event loop.
+ * If session has {@link JournalWriter}, its rounds are journaled; player's box is always 1.
+ * Bet is taken from player's account when it's made and returned with win on settlement. If session has
+ * {@link Wallet}, player could identify himself by {@link BlackjackClient#PLAYER_ID_PREFIX} message, while
+ * he isn't in round: then he plays with money of his account in wallet.
+ * If session has {@link SessionRegistry}, session of lost connection waits for player during grace period:
+ * player reconnects and sends session's token, then session is started again on new connection and resends
+ * its current state.
+ * @author yevhen bilous
+ */
+public class SinglePlayerSession implements PlayerSession, SessionFactory {
+
+    /**
+     * States, in which session waits for player's message.
+     */
+    enum State {
+        BET, ACTION, ANOTHER_ROUND, FINISHED
+    }
+
+    private PlayerConnection connection;
+    private final ShoePool shoePool;
+    private final int minimalBet;
+    private final JournalWriter journal;
+    private Wallet wallet = null;
+    private SessionRegistry sessionRegistry = null;
+    private BasicStrategy advisor = null;
+    // token, by which player resumes session, or null if sessions aren't resumed
+    private String token = null;
+    private boolean started = false;
+    private Account account;
+    // player's money on start or when he identified himself, used in results
+    private int initialPlayerMoney;
+
+    private State state = State.BET;
+    private ArrayShoe shoe;
+    private final Hand dealerHand = new Hand();
+    private final Hand playerHand = new Hand();
+    private int bet;
+    // id of current round in journal
+    private long round = 0;
+
+    /**
+     * @param connection  connection with player
+     * @param shoePool    pool of shuffled shoes, may be null - then session uses its own shoe
+     * @param playerMoney initial amount of money which player has
+     * @param minimalBet  minimal bet on round start
+     */
+    public SinglePlayerSession(PlayerConnection connection, ShoePool shoePool, int playerMoney, int minimalBet) {
+        this(connection, shoePool, playerMoney, minimalBet, null);
+    }
+
+    /**
+     * @param connection  connection with player
+     * @param shoePool    pool of shuffled shoes, may be null - then session uses its own shoe
+     * @param playerMoney initial amount of money which player has
+     * @param minimalBet  minimal bet on round start
+     * @param journal     journal of rounds, may be null; it's shared by sessions of one thread
+     */
+    public SinglePlayerSession(PlayerConnection connection, ShoePool shoePool, int playerMoney, int minimalBet,
+                               JournalWriter journal) {
+        this.connection = connection;
+        this.shoePool = shoePool;
+        this.account = Account.anonymous(playerMoney);
+        this.initialPlayerMoney = playerMoney;
+        this.minimalBet = minimalBet;
+        this.journal = journal;
+    }
+
+    /**
+     * Sets wallet of identified players' accounts. Must be called before {@link SinglePlayerSession#start()}.
+     *
+     * @param wallet wallet, shared by sessions, may be null - then player's money is lost when he leaves
+     */
+    public void setWallet(Wallet wallet) {
+        this.wallet = wallet;
+    }
+
+    /**
+     * Lets player resume session after connection loss. Must be called before {@link SinglePlayerSession#start()}.
+     *
+     * @param sessionRegistry registry, shared by sessions, may be null - then session ends with connection
+     */
+    public void setSessionRegistry(SessionRegistry sessionRegistry) {
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    /**
+     * Lets player ask for hints instead of decisions. Must be called before {@link SinglePlayerSession#start()}.
+     *
+     * @param advisor strategy, shared by sessions, may be null - then hints aren't available
+     */
+    public void setAdvisor(BasicStrategy advisor) {
+        this.advisor = advisor;
+    }
+
+    /**
+     * Greets player and asks for bet, or resends current state, if session is started again on player's
+     * new connection.
+     */
+    public void start() {
+        if (started) {
+            resumed();
+            return;
+        }
+        started = true;
+        shoe = shoePool != null ? shoePool.acquire() : new ArrayShoe(6, true);
+        connection.sendMessage(ClientMode.CLIENT_RECEIVE, AbstractPlayerHandler.greetings + minimalBet + "$;",
+                "Your money: " + account.getBalance() + "\n");
+        if (sessionRegistry != null) {
+            token = sessionRegistry.newToken();
+            connection.sendMessage(ClientMode.CLIENT_RECEIVE, BlackjackClient.SESSION_TOKEN_PREFIX + token);
+        }
+        proposeBet();
+    }
+
+    /**
+     * Attaches detached session to player's new connection.
+     */
+    public PlayerSession createSession(PlayerConnection connection) {
+        this.connection = connection;
+        return this;
+    }
+
+    public void onMessage(String message) {
+        if (message.startsWith(BlackjackClient.PLAYER_ID_PREFIX)) {
+            identify(message.substring(BlackjackClient.PLAYER_ID_PREFIX.length()).trim());
+            return;
+        }
+        if (message.startsWith(BlackjackClient.RESUME_PREFIX)) {
+            resume(message.substring(BlackjackClient.RESUME_PREFIX.length()).trim());
+            return;
+        }
+        switch (state) {
+            case BET: {
+                receiveBet(message);
+                break;
+            }
+            case ACTION: {
+                receiveDecision(message);
+                break;
+            }
+            case ANOTHER_ROUND: {
+                receiveAnotherRoundAnswer(message);
+                break;
+            }
+            case FINISHED: {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Waits for player during grace period, if session could be resumed; otherwise ends session.
+     */
+    public void onDisconnect() {
+        if (state == State.FINISHED) return;
+        Runnable expiry = new Runnable() {
+            public void run() {
+                abandon();
+            }
+        };
+        if (sessionRegistry == null || !sessionRegistry.detach(token, this, connection, expiry)) {
+            abandon();
+            return;
+        }
+        ServerLog.info("player detached");
+    }
+
+    /**
+     * Ends session of player, who lost connection.
+     */
+    private void abandon() {
+        ServerLog.warn("player unreachable, disconnect");
+        if (journal != null && state == State.ACTION) {
+            journal.left(round, 1);
+            journal.roundEnded(round, true);
+        }
+        finish();
+    }
+
+    public boolean isFinished() {
+        return state == State.FINISHED;
+    }
+
+    /**
+     * Passes connection of reconnected player to his detached session and ends this new session.
+     * If there is no such session, this session goes on.
+     */
+    private void resume(String token) {
+        boolean newPlayer = state == State.BET && account.getPlayerId() == null;
+        if (!newPlayer || sessionRegistry == null || !sessionRegistry.resume(token, connection)) {
+            connection.sendMessage(ClientMode.CLIENT_RECEIVE, BlackjackClient.SESSION_NOT_RESUMED);
+            resendState();
+            return;
+        }
+        finish();
+    }
+
+    /**
+     * Continues session of player, who came back on new connection.
+     */
+    private void resumed() {
+        if (state == State.FINISHED) {
+            connection.sendMessage(ClientMode.CLIENT_DISCONNECT, BlackjackClient.SESSION_NOT_RESUMED);
+            connection.close();
+            return;
+        }
+        ServerLog.info("player resumed");
+        connection.sendMessage(ClientMode.CLIENT_RECEIVE, BlackjackClient.SESSION_RESUMED,
+                "Your money: " + account.getBalance());
+        resendState();
+    }
+
+    /**
+     * Sends current state of round to player and asks him again.
+     */
+    private void resendState() {
+        switch (state) {
+            case BET: {
+                proposeBet();
+                break;
+            }
+            case ACTION: {
+                connection.sendAmount(ClientMode.CLIENT_RECEIVE, AmountKind.BET, bet);
+                connection.sendCards(ClientMode.CLIENT_RECEIVE, HandOwner.DEALER, dealerHand);
+                connection.sendCards(ClientMode.CLIENT_RECEIVE, HandOwner.PLAYER, playerHand);
+                proposeDecision();
+                break;
+            }
+            case ANOTHER_ROUND: {
+                proposeAnotherRound();
+                break;
+            }
+            case FINISHED: {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Replaces anonymous account of player by his account from wallet. Player in round can't change account.
+     */
+    private void identify(String playerId) {
+        if (wallet == null) {
+            connection.sendMessage(ClientMode.CLIENT_RECEIVE, "Players' accounts are not kept by this server.");
+            return;
+        }
+        if (account.getPlayerId() != null || state == State.ACTION) {
+            connection.sendMessage(ClientMode.CLIENT_RECEIVE, "You can't change your account now.");
+            return;
+        }
+        try {
+            account = wallet.open(playerId, initialPlayerMoney);
+        } catch (IllegalArgumentException e) {
+            connection.sendMessage(ClientMode.CLIENT_RECEIVE, e.getMessage());
+            return;
+        }
+        initialPlayerMoney = account.getBalance();
+        ServerLog.info("player identified", "money", initialPlayerMoney, playerId);
+        connection.sendMessage(ClientMode.CLIENT_RECEIVE, "Welcome, " + playerId + ".",
+                "Your money: " + initialPlayerMoney);
+        if (initialPlayerMoney < minimalBet) {
+            connection.sendMessage(ClientMode.CLIENT_RECEIVE, "You don't have enough money for next round.");
+            sayGoodbye();
+        }
+    }
+
+    private void proposeBet() {
+        state = State.BET;
+        connection.sendMessage(ClientMode.CLIENT_SEND_TO_SERVER, AbstractPlayerHandler.betProposal +
+                "; Minimal bet is " + minimalBet + "$.");
+    }
+
+    /**
+     * Checks received bet and starts round, or asks for bet again if received value is inappropriate.
+     */
+    private void receiveBet(String message) {
+        try {
+            bet = Integer.valueOf(message.trim());
+        } catch (NumberFormatException e) {
+            bet = 0;
+        }
+        if (bet < minimalBet) {
+            connection.sendMessage(ClientMode.CLIENT_RECEIVE,
+                    "Please, type one positive integer number, equal or bigger than minimal bet");
+            proposeBet();
+            return;
+        }
+        if (!account.debit(bet)) {
+            connection.sendMessage(ClientMode.CLIENT_RECEIVE,
+                    "You don't have enough money for this bet. Your money: " + account.getBalance());
+            proposeBet();
+            return;
+        }
+        connection.sendAmount(ClientMode.CLIENT_RECEIVE, AmountKind.BET, bet);
+        if (journal != null) {
+            round = journal.roundStarted(1, JournalWriter.DEALER_SKIPS_BLACKJACK);
+            journal.bet(round, 1, bet);
+        }
+        dealInitialCards();
+        // if player has a blackjack, dealer doesn't need to take more cards - player wins immediately
+        if (playerHand.isBlackjack()) {
+            settle(GameResult.PLAYER_BLACKJACK);
+        } else {
+            proposeDecision();
+        }
+    }
+
+    private void dealInitialCards() {
+        if (shoe.needsReshuffle()) {
+            if (shoePool != null) shoe = shoePool.exchange(shoe);
+            else shoe.reshuffle();
+        }
+        ServerLog.info("round started", "seed", shoe.getShuffleSeed(), "dealtCards", shoe.getDealtCount());
+        if (journal != null) journal.shoe(round, shoe.getShuffleSeed(), shoe.getDealtCount(), shoe.getDecksCount());
+        dealerHand.clear();
+        dealerHand.retrieveCardFromDeck(shoe);
+        playerHand.clear();
+        playerHand.retrieveCardFromDeck(shoe, 2);
+        if (journal != null) {
+            journal.cards(round, 0, dealerHand, 0);
+            journal.cards(round, 1, playerHand, 0);
+        }
+        connection.sendCards(ClientMode.CLIENT_RECEIVE, HandOwner.DEALER, dealerHand);
+        connection.sendCards(ClientMode.CLIENT_RECEIVE, HandOwner.PLAYER, playerHand);
+        connection.sendAmount(ClientMode.CLIENT_RECEIVE, AmountKind.MONEY, account.getBalance());
+    }
+
+    private void proposeDecision() {
+        state = State.ACTION;
+        connection.sendMessage(ClientMode.CLIENT_SEND_TO_SERVER, AbstractPlayerHandler.chooseActionInstruction);
+    }
+
+    /**
+     * Applies HIT/STAND/DOUBLE decision. Unknown decisions are ignored and player is asked again.
+     */
+    private void receiveDecision(String message) {
+        if (message.trim().equalsIgnoreCase(BlackjackClient.HINT_REQUEST)) {
+            connection.sendMessage(ClientMode.CLIENT_RECEIVE, advisor != null
+                    ? advisor.hint(playerHand, dealerHand, shoe) : "Hints are not available.");
+            proposeDecision();
+            return;
+        }
+        PlayerDecision decision = message.isEmpty() ? null : PlayerDecision.fromLetter(message.charAt(0));
+        if (decision == PlayerDecision.DOUBLE && !account.debit(bet)) {
+            connection.sendMessage(ClientMode.CLIENT_RECEIVE, "You don't have enough money to double.");
+            decision = null;
+        }
+        boolean boxReady = false;
+        int cardsCount = playerHand.getCardsCount();
+        if (decision != null) {
+            if (journal != null) journal.decision(round, 1, decision, false);
+            switch (decision) {
+                case HIT: {
+                    playerHand.retrieveCardFromDeck(shoe);
+                    break;
+                }
+                case DOUBLE: {
+                    bet *= 2;
+                    playerHand.retrieveCardFromDeck(shoe);
+                    boxReady = true;
+                    break;
+                }
+                case STAND: {
+                    boxReady = true;
+                    break;
+                }
+            }
+        }
+        if (journal != null) journal.cards(round, 1, playerHand, cardsCount);
+        if (playerHand.isBusted()) boxReady = true;
+        connection.sendCards(ClientMode.CLIENT_RECEIVE, HandOwner.DEALER, dealerHand);
+        connection.sendCards(ClientMode.CLIENT_RECEIVE, HandOwner.PLAYER, playerHand);
+        if (!boxReady) {
+            proposeDecision();
+            return;
+        }
+
+        // player is done, so dealer takes cards and game result is determined
+        connection.sendMessage(ClientMode.CLIENT_RECEIVE, "Dealer retrieves cards...");
+        int dealerCardsCount = dealerHand.getCardsCount();
+        while (!dealerHand.reachesDealerHit()) {
+            dealerHand.retrieveCardFromDeck(shoe);
+        }
+        if (journal != null) journal.cards(round, 0, dealerHand, dealerCardsCount);
+        GameResult gameResult = GameResult.resolve(playerHand, dealerHand);
+        connection.sendCards(ClientMode.CLIENT_RECEIVE, HandOwner.DEALER, dealerHand);
+        connection.sendCards(ClientMode.CLIENT_RECEIVE, HandOwner.PLAYER, playerHand);
+        settle(gameResult);
+    }
+
+    /**
+     * Settles bet according to game result and asks player if he wants another round. Player, who ran out
+     * of money, is disconnected.
+     */
+    private void settle(GameResult gameResult) {
+        int net = gameResult.getNet(bet);
+        connection.sendMessage(ClientMode.CLIENT_RECEIVE, gameResult.getDescription());
+        connection.sendAmount(ClientMode.CLIENT_RECEIVE, AmountKind.NET, net);
+        // bet was taken when it was made, so it's returned together with win
+        account.credit(bet + net);
+        int playerMoney = account.getBalance();
+        if (journal != null) {
+            journal.settlement(round, 1, gameResult, net, playerMoney);
+            journal.roundEnded(round, false);
+        }
+        connection.sendAmount(ClientMode.CLIENT_RECEIVE, AmountKind.MONEY, playerMoney);
+        if (playerMoney < minimalBet) {
+            connection.sendMessage(ClientMode.CLIENT_RECEIVE, "You don't have enough money for next round.");
+            sayGoodbye();
+            return;
+        }
+        proposeAnotherRound();
+    }
+
+    private void proposeAnotherRound() {
+        state = State.ANOTHER_ROUND;
+        connection.sendMessage(ClientMode.CLIENT_SEND_TO_SERVER, "Want to play another round? (y/n)");
+    }
+
+    /**
+     * 'y' or 'Y' means continue, any other symbol means game ending and closing connection.
+     */
+    private void receiveAnotherRoundAnswer(String message) {
+        if (!message.isEmpty() && (message.charAt(0) == 'y' || message.charAt(0) == 'Y')) {
+            proposeBet();
+            return;
+        }
+        sayGoodbye();
+    }
+
+    /**
+     * Sends results to player and disconnects him.
+     */
+    private void sayGoodbye() {
+        connection.sendAmount(ClientMode.CLIENT_RECEIVE, AmountKind.RESULTS,
+                account.getBalance() - initialPlayerMoney);
+        connection.sendMessage(ClientMode.CLIENT_DISCONNECT, "Goodbye.");
+        finish();
+        connection.close();
+        ServerLog.info("player disconnected");
+    }
+
+    /**
+     * Ends session and returns shoe to pool.
+     */
+    private void finish() {
+        if (shoePool != null && shoe != null) shoePool.release(shoe);
+        shoe = null;
+        state = State.FINISHED;
+    }
+}
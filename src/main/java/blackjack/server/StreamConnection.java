@@ -0,0 +1,106 @@
+package blackjack.server;
+
+import blackjack.client.BinaryProtocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * Connection with player over blocking socket: messages are collected in output buffer and written
+ * to socket by {@link StreamConnection#flush()}, and messages are read by the thread, which serves player.
+ * @author yevhen bilous
+ */
+public class StreamConnection extends AbstractPlayerConnection {
+
+    /**
+     * Output buffer holds several frames, so one game step usually fits into one socket write.
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 4 * BinaryProtocol.MAX_FRAME_SIZE;
+
+    private final Socket socket;
+    private final BufferedInputStream input;
+    private final OutputStream output;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(BinaryProtocol.MAX_FRAME_SIZE);
+
+    /**
+     * @param socket socket, associated with connected client
+     * @throws IOException if socket's streams are not available
+     */
+    public StreamConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        this.input = new BufferedInputStream(socket.getInputStream());
+        this.output = new BufferedOutputStream(socket.getOutputStream(), OUTPUT_BUFFER_SIZE);
+    }
+
+    /**
+     * Receives next message from player, in text or binary protocol. Protocol upgrade request
+     * is handled here and is not returned.
+     *
+     * @return text message without protocol service symbols, or null if connection was lost
+     */
+    public String receiveMessage() {
+        if (!binary) {
+            String rawMessage = AbstractPlayerHandler.receiveIncomingData(input);
+            if (rawMessage == null) return null;
+            String message = AbstractPlayerHandler.getMessage(rawMessage);
+            if (upgradeRequested(message)) return receiveMessage();
+            return message;
+        }
+        try {
+            readBuffer.clear();
+            readFully(input, readBuffer, BinaryProtocol.HEADER_SIZE);
+            int size = BinaryProtocol.HEADER_SIZE + (readBuffer.getShort(0) & 0xFFFF);
+            if (size > readBuffer.capacity()) return null;
+            readFully(input, readBuffer, size);
+            readBuffer.flip();
+            return BinaryProtocol.readClientText(readBuffer);
+        } catch (IOException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            ServerLog.warn("wrong message from player", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    protected void write(ByteBuffer frame) {
+        try {
+            output.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+        } catch (IOException e) {
+            ServerLog.warn("unable to send message to player", e);
+        }
+    }
+
+    public void flush() {
+        try {
+            output.flush();
+        } catch (IOException e) {
+            ServerLog.warn("unable to send message to player", e);
+        }
+    }
+
+    public void close() {
+        flush();
+        try {
+            socket.close();
+        } catch (IOException e) {
+            ServerLog.warn("unable to close client's socket", e);
+        }
+    }
+
+    /**
+     * Reads bytes from stream into buffer's backing array until buffer's position reaches specified value.
+     */
+    static void readFully(InputStream input, ByteBuffer buffer, int upTo) throws IOException {
+        while (buffer.position() < upTo) {
+            int read = input.read(buffer.array(), buffer.position(), upTo - buffer.position());
+            if (read == -1) throw new IOException("Connection closed.");
+            buffer.position(buffer.position() + read);
+        }
+    }
+}
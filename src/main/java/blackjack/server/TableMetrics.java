@@ -0,0 +1,109 @@
+package blackjack.server;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of {@link GameTable}s, shared by all tables of server. Tables are served by different event loops,
+ * so counters are updated by several threads at once and could be read by any thread. Recording never locks:
+ * counters are {@link LongAdder}s and latencies are recorded by {@link LatencyRecorder}s.
+ * @author yevhen bilous
+ */
+public class TableMetrics implements TableMetricsMXBean {
+
+    private final LongAdder roundsPlayed = new LongAdder();
+    private final LongAdder betTimeouts = new LongAdder();
+    private final LongAdder actionTimeouts = new LongAdder();
+    private final RateMeter roundsRate = new RateMeter();
+    private final LatencyRecorder lobbyWait = new LatencyRecorder();
+    private final LatencyRecorder roundStartWait = new LatencyRecorder();
+    private final LatencyRecorder betWait = new LatencyRecorder();
+    private final LatencyRecorder decisionWait = new LatencyRecorder();
+    private final LatencyRecorder dealerResolution = new LatencyRecorder();
+
+    void roundPlayed() {
+        roundsPlayed.increment();
+    }
+
+    void betTimedOut() {
+        betTimeouts.increment();
+    }
+
+    void actionTimedOut() {
+        actionTimeouts.increment();
+    }
+
+    void recordLobbyWait(long nanos) {
+        lobbyWait.record(nanos);
+    }
+
+    void recordRoundStartWait(long nanos) {
+        roundStartWait.record(nanos);
+    }
+
+    void recordBetWait(long nanos) {
+        betWait.record(nanos);
+    }
+
+    void recordDecisionWait(long nanos) {
+        decisionWait.record(nanos);
+    }
+
+    void recordDealerResolution(long nanos) {
+        dealerResolution.record(nanos);
+    }
+
+    /**
+     * @return amount of rounds, which were played to the end by all tables
+     */
+    public long getRoundsPlayed() {
+        return roundsPlayed.sum();
+    }
+
+    public double getRoundsPerSecond() {
+        return roundsRate.perSecond(getRoundsPlayed());
+    }
+
+    /**
+     * @return amount of players, who didn't make bet in time and sat out a round
+     */
+    public long getBetTimeouts() {
+        return betTimeouts.sum();
+    }
+
+    /**
+     * @return amount of players, who didn't make decision in time and were stood automatically
+     */
+    public long getActionTimeouts() {
+        return actionTimeouts.sum();
+    }
+
+    public LatencySummary getLobbyWait() {
+        return lobbyWait.getSummary();
+    }
+
+    public LatencySummary getRoundStartWait() {
+        return roundStartWait.getSummary();
+    }
+
+    public LatencySummary getBetWait() {
+        return betWait.getSummary();
+    }
+
+    public LatencySummary getDecisionWait() {
+        return decisionWait.getSummary();
+    }
+
+    public LatencySummary getDealerResolution() {
+        return dealerResolution.getSummary();
+    }
+
+    public String toString() {
+        return "Tables: rounds " + getRoundsPlayed() + ", bet timeouts " + getBetTimeouts()
+                + ", action timeouts " + getActionTimeouts()
+                + "\nLobby wait: " + getLobbyWait()
+                + "\nRound start wait: " + getRoundStartWait()
+                + "\nBet wait: " + getBetWait()
+                + "\nDecision wait: " + getDecisionWait()
+                + "\nDealer resolution: " + getDealerResolution();
+    }
+}
@@ -0,0 +1,44 @@
+package blackjack.server;
+
+/**
+ * Counters and phase latencies of all {@link GameTable}s of server, published through JMX.
+ * @author yevhen bilous
+ */
+public interface TableMetricsMXBean {
+
+    long getRoundsPlayed();
+
+    /**
+     * @return rounds per second at all tables during last 10 seconds
+     */
+    double getRoundsPerSecond();
+
+    long getBetTimeouts();
+
+    long getActionTimeouts();
+
+    /**
+     * @return time, which players spent in lobby before they were passed to table
+     */
+    LatencySummary getLobbyWait();
+
+    /**
+     * @return time from first ready player's arrival to round start
+     */
+    LatencySummary getRoundStartWait();
+
+    /**
+     * @return time from round start to the moment, when all bets were made
+     */
+    LatencySummary getBetWait();
+
+    /**
+     * @return time from decision request to player's answer
+     */
+    LatencySummary getDecisionWait();
+
+    /**
+     * @return time of dealer's turn and settlement of bets
+     */
+    LatencySummary getDealerResolution();
+}
@@ -0,0 +1,86 @@
+package blackjack.server;
+
+import blackjack.cards.Hand;
+import blackjack.wallet.Account;
+
+/**
+ * Player, who occupies a box at {@link GameTable}. Session only keeps player's state and passes
+ * player's messages to table, which runs the game for all its boxes.
+ * When player's connection is lost, session could wait for him in {@link SessionRegistry}: then it's
+ * its own factory, which attaches it to player's new connection.
+ * Player's money is kept by his {@link Account}: anonymous one, or one from table's wallet, if player
+ * identified himself.
+ * @author yevhen bilous
+ */
+class TableSession implements PlayerSession, SessionFactory {
+
+    final GameTable table;
+    PlayerConnection connection;
+    final int boxIndex;
+    // token, by which player resumes session, or null if sessions aren't resumed
+    final String token;
+    final Hand hand = new Hand();
+    Account account;
+    // player's money when he joined or identified himself, used in results
+    int initialMoney;
+    int bet = 0;
+    boolean inRound = false;
+    // player finished taking cards, used in concurrent turns
+    boolean turnDone = false;
+    // player wants to play next round; new player is ready at once
+    boolean ready = true;
+    boolean finished = false;
+    boolean started = false;
+    // connection was lost and session waits for player
+    boolean detached = false;
+    // time of last decision request, used in metrics
+    long decisionRequestTime = 0;
+
+    /**
+     * @param table      table, which runs the game
+     * @param connection connection with player
+     * @param boxIndex   index of player's box, starting from 0
+     * @param account    player's account
+     * @param token      token, by which player resumes session, may be null
+     */
+    TableSession(GameTable table, PlayerConnection connection, int boxIndex, Account account, String token) {
+        this.table = table;
+        this.connection = connection;
+        this.boxIndex = boxIndex;
+        this.token = token;
+        this.account = account;
+        this.initialMoney = account.getBalance();
+    }
+
+    /**
+     * Joins table, or resends current state, if session is started again on player's new connection.
+     */
+    public void start() {
+        if (started) {
+            table.onResume(this);
+            return;
+        }
+        started = true;
+        table.onJoin(this);
+    }
+
+    public void onMessage(String message) {
+        table.onMessage(this, message);
+    }
+
+    public void onDisconnect() {
+        table.onDisconnect(this);
+    }
+
+    /**
+     * Attaches detached session to player's new connection.
+     */
+    public PlayerSession createSession(PlayerConnection connection) {
+        this.connection = connection;
+        return this;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+}
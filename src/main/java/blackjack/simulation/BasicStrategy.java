@@ -0,0 +1,350 @@
+package blackjack.simulation;
+
+import blackjack.cards.ArrayShoe;
+import blackjack.cards.Card;
+import blackjack.cards.GameResult;
+import blackjack.cards.Hand;
+import blackjack.cards.PlayerDecision;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Basic strategy: for each player's hand (hard scores and presence of ace) against dealer's upcard chooses
+ * HIT, STAND or DOUBLE with the best expected net. Expected nets are calculated once, by game rules of this
+ * server: dealer has only upcard while players decide and takes cards until {@link Hand#reachesDealerHit()},
+ * player may double on any hand, blackjack pays 3 to 2 and there are no splits. Scores of hands are taken
+ * from {@link Hand}, so strategy follows its scoring.
+ * <p>
+ * Expected nets of all hands are kept in flat array, so decision is just array lookup. Default table is
+ * calculated for infinite shoe; in composition-dependent mode table is calculated from probabilities of cards,
+ * which remain in shoe. Shoe composition is reduced to probabilities of aces, low cards (2..6), middle cards
+ * (7..9) and tens, rounded to {@link #PROBABILITY_STEP}, so neighbouring compositions share one table, and
+ * recently used tables are cached by rounded composition. Table for new composition is calculated by
+ * background thread, and until it's ready decisions are taken from infinite shoe table, so
+ * deciding never calculates anything on caller's thread.
+ * Strategy is shared by threads: tables are immutable and cache is synchronized.
+ * @author yevhen bilous
+ */
+public class BasicStrategy implements PlayerStrategy {
+
+    public static final int DEFAULT_CACHE_SIZE = 256;
+    /**
+     * Step, by which probabilities of groups of card values are rounded in composition-dependent mode.
+     */
+    public static final double PROBABILITY_STEP = 1.0 / 100;
+
+    // card values are 1 (ace) .. 10; hands with hard scores above 31 aren't reachable
+    private static final int VALUES = 11;
+    private static final int MAX_HARD = 32;
+    private static final int BUST = Hand.MAX_SCORES + 1;
+    private static final Card[] CARDS = Card.values();
+    private static final PlayerDecision[] DECISIONS = PlayerDecision.values();
+    // scores of hands, indexed by hard scores * 2 + 1 if hand has ace; calculated by Hand
+    private static final int[] MAX_SCORES = new int[MAX_HARD * 2];
+    private static final boolean[] BUSTED = new boolean[MAX_HARD * 2];
+    private static final boolean[] DEALER_STOPS = new boolean[MAX_HARD * 2];
+    // composition is described by probabilities of groups of values: aces, 2..6, 7..9 and tens;
+    // rounded probability of each group takes 8 bits of composition key
+    private static final int[] GROUPS = {-1, 0, 1, 1, 1, 1, 1, 2, 2, 2, 3};
+    private static final int[] GROUP_SIZES = {1, 5, 3, 1};
+    private static final int GROUP_BITS = 8;
+
+    private static final ExecutorService calculator = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "strategy-tables");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    static {
+        for (int hard = 1; hard < MAX_HARD; hard++) {
+            for (int ace = 0; ace < 2; ace++) {
+                Hand hand = representative(hard, ace == 1);
+                if (hand == null) continue;
+                MAX_SCORES[hard * 2 + ace] = hand.getMaxScore();
+                BUSTED[hard * 2 + ace] = hand.isBusted();
+                DEALER_STOPS[hard * 2 + ace] = hand.reachesDealerHit();
+            }
+        }
+    }
+
+    private final Table infiniteShoeTable;
+    private final boolean compositionDependent;
+    private final int cacheSize;
+    private final Map<Long, Table> tablesByComposition;
+    // compositions, which tables are being calculated
+    private final Set<Long> pendingCompositions = new HashSet<Long>();
+
+    /**
+     * Creates strategy for infinite shoe.
+     */
+    public BasicStrategy() {
+        this(false, 0);
+    }
+
+    /**
+     * @param compositionDependent true, if decisions must take into account cards, which remain in shoe
+     * @param cacheSize            amount of tables, calculated for recent shoe compositions, which are kept;
+     *                             0 makes strategy use only infinite shoe table
+     */
+    public BasicStrategy(boolean compositionDependent, final int cacheSize) {
+        double[] probabilities = new double[VALUES];
+        for (int value = 1; value < VALUES; value++) {
+            probabilities[value] = value == 10 ? 4.0 / 13 : 1.0 / 13;
+        }
+        infiniteShoeTable = new Table(probabilities);
+        this.compositionDependent = compositionDependent;
+        this.cacheSize = cacheSize;
+        tablesByComposition = new LinkedHashMap<Long, Table>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Long, Table> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Chooses decision by infinite shoe table.
+     */
+    public PlayerDecision decide(Hand playerHand, Hand dealerHand) {
+        return infiniteShoeTable.decide(playerHand, dealerHand.getCard(0));
+    }
+
+    /**
+     * Chooses decision by table for specified shoe, if strategy is composition-dependent and table for its
+     * composition is already calculated.
+     *
+     * @param playerHand player's cards
+     * @param dealerHand dealer's cards, first of them is upcard
+     * @param shoe       shoe, from which cards are dealt; may be null
+     * @return decision with the best expected net
+     */
+    public PlayerDecision decide(Hand playerHand, Hand dealerHand, ArrayShoe shoe) {
+        return tableFor(shoe).decide(playerHand, dealerHand.getCard(0));
+    }
+
+    /**
+     * Builds hint for player: decision and expected nets of all decisions per unit of bet.
+     *
+     * @param playerHand player's cards
+     * @param dealerHand dealer's cards, first of them is upcard
+     * @param shoe       shoe, from which cards are dealt; may be null
+     * @return text of hint
+     */
+    public String hint(Hand playerHand, Hand dealerHand, ArrayShoe shoe) {
+        Table table = tableFor(shoe);
+        Card upcard = dealerHand.getCard(0);
+        StringBuilder hint = new StringBuilder("Hint: ").append(table.decide(playerHand, upcard))
+                .append(". Expected net per unit of bet:");
+        for (PlayerDecision decision : DECISIONS) {
+            hint.append(' ').append(decision).append(' ')
+                    .append(String.format("%.3f", table.getExpectedNet(playerHand, upcard, decision)));
+        }
+        return hint.toString();
+    }
+
+    /**
+     * @return expected net of decision per unit of bet, by infinite shoe table
+     */
+    public double getExpectedNet(Hand playerHand, Card upcard, PlayerDecision decision) {
+        return infiniteShoeTable.getExpectedNet(playerHand, upcard, decision);
+    }
+
+    public boolean isCompositionDependent() {
+        return compositionDependent;
+    }
+
+    /**
+     * Finds cached table for rounded composition of shoe. If there is no such table, its calculation is
+     * started in background, and infinite shoe table is returned meanwhile.
+     */
+    private Table tableFor(ArrayShoe shoe) {
+        if (!compositionDependent || shoe == null || shoe.size() == 0 || cacheSize == 0) return infiniteShoeTable;
+        int[] counts = new int[GROUP_SIZES.length];
+        for (Card card : CARDS) {
+            counts[GROUPS[cardValue(card)]] += shoe.getRemaining(card);
+        }
+        long key = 0;
+        for (int count : counts) {
+            key = key << GROUP_BITS | Math.min(Math.round((double) count / shoe.size() / PROBABILITY_STEP),
+                    (1 << GROUP_BITS) - 1);
+        }
+        final long composition = key;
+        synchronized (tablesByComposition) {
+            Table table = tablesByComposition.get(composition);
+            if (table != null) return table;
+            if (pendingCompositions.size() >= cacheSize || !pendingCompositions.add(composition)) {
+                return infiniteShoeTable;
+            }
+        }
+        calculator.execute(new Runnable() {
+            public void run() {
+                Table table = new Table(probabilities(composition));
+                synchronized (tablesByComposition) {
+                    pendingCompositions.remove(composition);
+                    tablesByComposition.put(composition, table);
+                }
+            }
+        });
+        return infiniteShoeTable;
+    }
+
+    /**
+     * Restores probabilities of card values from composition key: probability of group is shared by its values
+     * equally. Rounded probabilities are normalized, so they sum up to 1.
+     */
+    private static double[] probabilities(long composition) {
+        double[] groupProbabilities = new double[GROUP_SIZES.length];
+        double sum = 0;
+        for (int group = GROUP_SIZES.length - 1; group >= 0; group--) {
+            groupProbabilities[group] = composition & (1 << GROUP_BITS) - 1;
+            sum += groupProbabilities[group];
+            composition >>>= GROUP_BITS;
+        }
+        double[] probabilities = new double[VALUES];
+        for (int value = 1; value < VALUES; value++) {
+            probabilities[value] = groupProbabilities[GROUPS[value]] / GROUP_SIZES[GROUPS[value]] / sum;
+        }
+        return probabilities;
+    }
+
+    /**
+     * @return value of card, aces are counted as 1
+     */
+    private static int cardValue(Card card) {
+        return card == Card.ACE ? 1 : card.ordinal() >= Card.TWO.ordinal() && card.ordinal() <= Card.TEN.ordinal()
+                ? card.ordinal() : 10;
+    }
+
+    /**
+     * Builds some hand with specified hard scores and aces. Hand has more than two cards, if two cards would make
+     * blackjack, so only scores of hand matter.
+     *
+     * @return hand, or null if there is no such hand
+     */
+    private static Hand representative(int hard, boolean ace) {
+        Hand hand = new Hand();
+        int rest = hard;
+        if (ace) {
+            hand.receiveCard(Card.ACE);
+            rest--;
+        }
+        if (!ace && rest < 2) return null;
+        while (rest > 0) {
+            int value = rest > 11 ? 10 : rest == 11 ? 9 : rest;
+            hand.receiveCard(value == 1 ? Card.ACE : value == 10 ? Card.TEN : CARDS[Card.TWO.ordinal() + value - 2]);
+            rest -= value;
+        }
+        if (hand.isBlackjack()) {
+            hand.clear();
+            hand.receiveCard(Card.ACE);
+            hand.receiveCard(Card.FIVE);
+            hand.receiveCard(Card.FIVE);
+        }
+        return hand;
+    }
+
+    private static int state(int hard, boolean ace) {
+        return Math.min(hard, MAX_HARD - 1) * 2 + (ace ? 1 : 0);
+    }
+
+    /**
+     * Expected nets of HIT, STAND and DOUBLE for each player's hand against each upcard, and best decisions.
+     * Index of hand is ((upcard value - 1) * 2 + 1 if hand has ace) * {@link Hand#MAX_SCORES + 1} + hard scores.
+     */
+    private static class Table {
+
+        private static final int HANDS = BUST;
+        private final double[] expectedNets = new double[10 * 2 * HANDS * DECISIONS.length];
+        private final byte[] decisions = new byte[10 * 2 * HANDS];
+
+        /**
+         * @param probabilities probabilities of card values, indexed by value
+         */
+        Table(double[] probabilities) {
+            // dealer's final scores probabilities for each dealer's hand: scores 0..21, BUST
+            double[][] dealerScores = new double[MAX_HARD * 2][];
+            double[] standNets = new double[MAX_HARD * 2];
+            double[] bestNets = new double[MAX_HARD * 2];
+            for (int upcard = 1; upcard < VALUES; upcard++) {
+                double[] dealer = dealerScores(state(upcard, upcard == 1), probabilities, dealerScores);
+                for (int state = 2; state < MAX_HARD * 2; state++) {
+                    standNets[state] = BUSTED[state] ? -1 : standNet(MAX_SCORES[state], dealer);
+                }
+                for (int hard = Hand.MAX_SCORES; hard >= 2; hard--) {
+                    for (int ace = 0; ace < 2; ace++) {
+                        double hit = 0;
+                        double doubled = 0;
+                        for (int value = 1; value < VALUES; value++) {
+                            int next = state(hard + value, ace == 1 || value == 1);
+                            hit += probabilities[value] * (BUSTED[next] ? -1 : bestNets[next]);
+                            doubled += probabilities[value] * 2 * standNets[next];
+                        }
+                        double stand = standNets[state(hard, ace == 1)];
+                        int hand = ((upcard - 1) * 2 + ace) * HANDS + hard;
+                        expectedNets[hand * 3 + PlayerDecision.HIT.ordinal()] = hit;
+                        expectedNets[hand * 3 + PlayerDecision.STAND.ordinal()] = stand;
+                        expectedNets[hand * 3 + PlayerDecision.DOUBLE.ordinal()] = doubled;
+                        PlayerDecision best = stand >= hit && stand >= doubled ? PlayerDecision.STAND
+                                : hit >= doubled ? PlayerDecision.HIT : PlayerDecision.DOUBLE;
+                        decisions[hand] = (byte) best.ordinal();
+                        bestNets[state(hard, ace == 1)] = Math.max(stand, Math.max(hit, doubled));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Calculates probabilities of dealer's final scores from specified dealer's hand.
+         */
+        private static double[] dealerScores(int state, double[] probabilities, double[][] memo) {
+            if (memo[state] != null) return memo[state];
+            double[] scores = new double[BUST + 1];
+            if (DEALER_STOPS[state]) {
+                scores[BUSTED[state] ? BUST : MAX_SCORES[state]] = 1;
+            } else {
+                int hard = state / 2;
+                boolean ace = state % 2 == 1;
+                for (int value = 1; value < VALUES; value++) {
+                    double[] next = dealerScores(state(hard + value, ace || value == 1), probabilities, memo);
+                    for (int score = 0; score <= BUST; score++) {
+                        scores[score] += probabilities[value] * next[score];
+                    }
+                }
+            }
+            memo[state] = scores;
+            return scores;
+        }
+
+        private static double standNet(int playerScore, double[] dealer) {
+            double net = dealer[BUST] * GameResult.PLAYER_WINS.getNet(1);
+            for (int score = 0; score < BUST; score++) {
+                GameResult result = playerScore > score ? GameResult.PLAYER_WINS
+                        : playerScore == score ? GameResult.STAY : GameResult.DEALER_WINS;
+                net += dealer[score] * result.getNet(1);
+            }
+            return net;
+        }
+
+        private int index(Hand playerHand, Card upcard) {
+            int hard = Math.min(playerHand.getHardScore(), Hand.MAX_SCORES);
+            return ((cardValue(upcard) - 1) * 2 + (playerHand.getAcesCount() > 0 ? 1 : 0)) * HANDS + hard;
+        }
+
+        PlayerDecision decide(Hand playerHand, Card upcard) {
+            if (playerHand.isBusted()) return PlayerDecision.STAND;
+            return DECISIONS[decisions[index(playerHand, upcard)]];
+        }
+
+        double getExpectedNet(Hand playerHand, Card upcard, PlayerDecision decision) {
+            if (playerHand.isBusted()) return -1;
+            return expectedNets[index(playerHand, upcard) * 3 + decision.ordinal()];
+        }
+    }
+}
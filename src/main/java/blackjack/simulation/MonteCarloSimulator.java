@@ -0,0 +1,82 @@
+package blackjack.simulation;
+
+import blackjack.cards.GameResult;
+import blackjack.cards.SplittableShuffleRandom;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs Monte Carlo simulation of blackjack rounds on all available processor cores and prints
+ * simulation speed, player's expected value and variance.
+ * @author yevhen bilous
+ */
+public class MonteCarloSimulator {
+
+    public static final int DEFAULT_BET = 10;
+    public static final int DEFAULT_DECKS_COUNT = 6;
+
+    private final int parallelism;
+    private final int decksCount;
+    private final int bet;
+    private final PlayerStrategy strategy;
+
+    public MonteCarloSimulator(int parallelism, int decksCount, int bet, PlayerStrategy strategy) {
+        this.parallelism = parallelism;
+        this.decksCount = decksCount;
+        this.bet = bet;
+        this.strategy = strategy;
+    }
+
+    /**
+     * Plays specified amount of rounds. Work is split into several tasks per thread, so threads
+     * which finish earlier could steal remaining work.
+     *
+     * @param rounds amount of rounds to play
+     * @param seed   initial seed of all shuffles, simulation with the same seed plays the same rounds
+     * @return merged statistics of all rounds
+     */
+    public SimulationResult simulate(long rounds, long seed) {
+        long leafRounds = Math.max(1, rounds / (parallelism * 8L));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(new SimulationTask(rounds, leafRounds, decksCount, bet, strategy,
+                    new SplittableShuffleRandom(seed)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Parses command line arguments and runs simulation.
+     *
+     * @param args must be in format: rounds [threads [seed]]
+     */
+    public static void main(String... args) {
+        if (args.length < 1) {
+            System.err.println("You need to specify rounds amount (and optionally threads amount and seed) as arguments.");
+            return;
+        }
+        long rounds = Long.valueOf(args[0]);
+        int parallelism = args.length > 1 ? Integer.valueOf(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.valueOf(args[2]) : ThreadLocalRandom.current().nextLong();
+        MonteCarloSimulator simulator = new MonteCarloSimulator(parallelism, DEFAULT_DECKS_COUNT, DEFAULT_BET,
+                new ThresholdStrategy());
+
+        long start = System.nanoTime();
+        SimulationResult result = simulator.simulate(rounds, seed);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("Threads:      " + parallelism);
+        System.out.println("Seed:         " + seed);
+        System.out.println("Rounds:       " + result.getRounds());
+        System.out.println(String.format("Time:         %.3f s", seconds));
+        System.out.println(String.format("Rounds/sec:   %.0f", result.getRounds() / seconds));
+        System.out.println(String.format("EV per bet:   %.5f", result.getExpectedValue()));
+        System.out.println(String.format("Variance:     %.5f", result.getVariance()));
+        System.out.println(String.format("House edge:   %.5f", result.getHouseEdge()));
+        for (GameResult gameResult : GameResult.values()) {
+            System.out.println(String.format("%-13s %d", gameResult + ":", result.getResultCount(gameResult)));
+        }
+    }
+}
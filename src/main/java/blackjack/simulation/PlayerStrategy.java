@@ -0,0 +1,21 @@
+package blackjack.simulation;
+
+import blackjack.cards.Hand;
+import blackjack.cards.PlayerDecision;
+
+/**
+ * Strategy, which makes HIT/STAND/DOUBLE decisions instead of human player. Implementations are
+ * shared between simulation threads, so they must not keep any mutable state.
+ * @author yevhen bilous
+ */
+public interface PlayerStrategy {
+
+    /**
+     * Chooses next player's action.
+     *
+     * @param playerHand player's cards
+     * @param dealerHand dealer's cards, visible to player
+     * @return player's decision
+     */
+    PlayerDecision decide(Hand playerHand, Hand dealerHand);
+}
@@ -0,0 +1,82 @@
+package blackjack.simulation;
+
+import blackjack.cards.ArrayShoe;
+import blackjack.cards.GameResult;
+import blackjack.cards.Hand;
+import blackjack.cards.PlayerDecision;
+
+/**
+ * Plays blackjack rounds without any client: dealing order, dealer's policy and settlement are the same
+ * as in {@link blackjack.server.SinglePlayerHandler}, but player's decisions are made by
+ * {@link PlayerStrategy}. Hands are reused between rounds, so playing a round doesn't allocate anything.
+ * Not thread-safe: each simulation thread must use its own instance with its own shoe.
+ * @author yevhen bilous
+ */
+public class RoundSimulator {
+
+    private final ArrayShoe shoe;
+    private final PlayerStrategy strategy;
+    private final Hand dealerHand = new Hand();
+    private final Hand playerHand = new Hand();
+
+    public RoundSimulator(ArrayShoe shoe, PlayerStrategy strategy) {
+        this.shoe = shoe;
+        this.strategy = strategy;
+    }
+
+    /**
+     * Plays one round and registers it in specified result.
+     *
+     * @param bet    player's initial bet
+     * @param result statistics accumulator
+     * @return round result
+     */
+    public GameResult playRound(int bet, SimulationResult result) {
+        if (shoe.needsReshuffle()) shoe.reshuffle();
+        dealerHand.clear();
+        dealerHand.retrieveCardFromDeck(shoe);
+        playerHand.clear();
+        playerHand.retrieveCardFromDeck(shoe, 2);
+
+        GameResult gameResult;
+        if (playerHand.isBlackjack()) {
+            gameResult = GameResult.PLAYER_BLACKJACK;
+        } else {
+            boolean boxReady = false;
+            while (!boxReady) {
+                PlayerDecision decision = strategy.decide(playerHand, dealerHand);
+                switch (decision) {
+                    case HIT: {
+                        playerHand.retrieveCardFromDeck(shoe);
+                        break;
+                    }
+                    case DOUBLE: {
+                        bet *= 2;
+                        playerHand.retrieveCardFromDeck(shoe);
+                        boxReady = true;
+                        break;
+                    }
+                    case STAND: {
+                        boxReady = true;
+                        break;
+                    }
+                }
+                if (playerHand.isBusted()) boxReady = true;
+            }
+            while (!dealerHand.reachesDealerHit()) {
+                dealerHand.retrieveCardFromDeck(shoe);
+            }
+            gameResult = GameResult.resolve(playerHand, dealerHand);
+        }
+        result.addRound(gameResult, bet, gameResult.getNet(bet));
+        return gameResult;
+    }
+
+    public Hand getPlayerHand() {
+        return playerHand;
+    }
+
+    public Hand getDealerHand() {
+        return dealerHand;
+    }
+}
@@ -0,0 +1,100 @@
+package blackjack.simulation;
+
+import blackjack.cards.GameResult;
+
+/**
+ * Accumulates statistics of simulated rounds. Each simulation task fills its own instance,
+ * then instances are merged by {@link SimulationResult#merge(SimulationResult)}, so no
+ * synchronization is needed while rounds are played.
+ * @author yevhen bilous
+ */
+public class SimulationResult {
+
+    private final int bet;
+    private long rounds = 0;
+    private long netSum = 0;
+    private long netSquaresSum = 0;
+    private long wagered = 0;
+    private final long[] resultsCounts = new long[GameResult.values().length];
+
+    /**
+     * @param bet initial bet of every round, used to express results in bet units
+     */
+    public SimulationResult(int bet) {
+        this.bet = bet;
+    }
+
+    /**
+     * Registers one finished round.
+     *
+     * @param result   round result
+     * @param finalBet player's bet at the end of round (doubled, if player chose DOUBLE)
+     * @param net      player's net
+     */
+    public void addRound(GameResult result, int finalBet, int net) {
+        rounds++;
+        netSum += net;
+        netSquaresSum += (long) net * net;
+        wagered += finalBet;
+        resultsCounts[result.ordinal()]++;
+    }
+
+    /**
+     * Adds statistics of other result to this one.
+     *
+     * @param other result to add
+     * @return this result
+     */
+    public SimulationResult merge(SimulationResult other) {
+        rounds += other.rounds;
+        netSum += other.netSum;
+        netSquaresSum += other.netSquaresSum;
+        wagered += other.wagered;
+        for (int index = 0; index < resultsCounts.length; index++) {
+            resultsCounts[index] += other.resultsCounts[index];
+        }
+        return this;
+    }
+
+    public long getRounds() {
+        return rounds;
+    }
+
+    public long getNetSum() {
+        return netSum;
+    }
+
+    public long getWagered() {
+        return wagered;
+    }
+
+    public long getResultCount(GameResult result) {
+        return resultsCounts[result.ordinal()];
+    }
+
+    /**
+     * @return player's expected net per round, in initial bet units
+     */
+    public double getExpectedValue() {
+        if (rounds == 0) return 0;
+        return (double) netSum / rounds / bet;
+    }
+
+    /**
+     * @return variance of player's net per round, in squared initial bet units
+     */
+    public double getVariance() {
+        if (rounds == 0) return 0;
+        double mean = (double) netSum / rounds;
+        double meanOfSquares = (double) netSquaresSum / rounds;
+        return (meanOfSquares - mean * mean) / ((double) bet * bet);
+    }
+
+    /**
+     * @return house edge: player's loss related to all money wagered, including doubles
+     */
+    public double getHouseEdge() {
+        if (wagered == 0) return 0;
+        return -(double) netSum / wagered;
+    }
+}
@@ -0,0 +1,65 @@
+package blackjack.simulation;
+
+import blackjack.cards.ArrayShoe;
+import blackjack.cards.SplittableShuffleRandom;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/join task, which plays specified amount of rounds. Big tasks are split in halves; each leaf task
+ * plays its rounds with its own shoe and its own {@link SimulationResult}, and results are merged
+ * when subtasks are joined, so simulation threads never share mutable state.
+ * Source of shuffle seeds is split deterministically together with task, so tasks with the same
+ * initial seed, amount of rounds and leaf size always play the same rounds, regardless of threads scheduling.
+ * @author yevhen bilous
+ */
+public class SimulationTask extends RecursiveTask<SimulationResult> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long rounds;
+    private final long leafRounds;
+    private final int decksCount;
+    private final int bet;
+    private final PlayerStrategy strategy;
+    private final SplittableShuffleRandom shuffleRandom;
+
+    /**
+     * @param rounds        amount of rounds to play
+     * @param leafRounds    maximal amount of rounds, which is played without further splitting
+     * @param decksCount    number of decks in each shoe
+     * @param bet           player's initial bet in each round
+     * @param strategy      player's strategy
+     * @param shuffleRandom source of shuffle seeds, owned by this task
+     */
+    public SimulationTask(long rounds, long leafRounds, int decksCount, int bet, PlayerStrategy strategy,
+                          SplittableShuffleRandom shuffleRandom) {
+        this.rounds = rounds;
+        this.leafRounds = leafRounds;
+        this.decksCount = decksCount;
+        this.bet = bet;
+        this.strategy = strategy;
+        this.shuffleRandom = shuffleRandom;
+    }
+
+    @Override
+    protected SimulationResult compute() {
+        if (rounds <= leafRounds) {
+            SimulationResult result = new SimulationResult(bet);
+            RoundSimulator simulator = new RoundSimulator(new ArrayShoe(decksCount,
+                    ArrayShoe.DEFAULT_PENETRATION, shuffleRandom, true), strategy);
+            for (long round = 0; round < rounds; round++) {
+                simulator.playRound(bet, result);
+            }
+            return result;
+        }
+        long half = rounds / 2;
+        SimulationTask left = new SimulationTask(half, leafRounds, decksCount, bet, strategy,
+                shuffleRandom.split());
+        SimulationTask right = new SimulationTask(rounds - half, leafRounds, decksCount, bet, strategy,
+                shuffleRandom);
+        left.fork();
+        SimulationResult rightResult = right.compute();
+        return left.join().merge(rightResult);
+    }
+}
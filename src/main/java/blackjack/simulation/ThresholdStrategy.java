@@ -0,0 +1,29 @@
+package blackjack.simulation;
+
+import blackjack.cards.Hand;
+import blackjack.cards.PlayerDecision;
+
+/**
+ * Simplest player's strategy: take cards until hand's maximum scores reach specified limit.
+ * With limit equal to {@link Hand#UPPER_HIT} player almost mimics dealer. Never doubles.
+ * @author yevhen bilous
+ */
+public class ThresholdStrategy implements PlayerStrategy {
+
+    private final int standScore;
+
+    /**
+     * @param standScore minimal scores, on which player stands
+     */
+    public ThresholdStrategy(int standScore) {
+        this.standScore = standScore;
+    }
+
+    public ThresholdStrategy() {
+        this(Hand.UPPER_HIT);
+    }
+
+    public PlayerDecision decide(Hand playerHand, Hand dealerHand) {
+        return playerHand.getMaxScore() < standScore ? PlayerDecision.HIT : PlayerDecision.STAND;
+    }
+}
@@ -0,0 +1,110 @@
+package blackjack.wallet;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Player's money. Balance is kept in memory, so bets and settlements never wait for disk: changed account
+ * is only queued in its {@link Wallet}, which writes it later. Account could be used by several threads
+ * (player could be connected to several tables), so balance is changed under account's lock, which is
+ * practically never contended.
+ * Anonymous account has no wallet and its balance is lost, when player leaves.
+ * @author yevhen bilous
+ */
+public class Account {
+
+    private final String playerId;
+    private final Wallet wallet;
+    private final AtomicBoolean queued = new AtomicBoolean(false);
+    private int balance;
+    // grows with each change, so the newest record wins on recovery
+    private long version;
+
+    Account(String playerId, Wallet wallet, int balance, long version) {
+        this.playerId = playerId;
+        this.wallet = wallet;
+        this.balance = balance;
+        this.version = version;
+    }
+
+    /**
+     * @param balance initial balance
+     * @return account, which isn't stored anywhere
+     */
+    public static Account anonymous(int balance) {
+        return new Account(null, null, balance, 0);
+    }
+
+    /**
+     * @return player's id, or null for anonymous account
+     */
+    public String getPlayerId() {
+        return playerId;
+    }
+
+    public synchronized int getBalance() {
+        return balance;
+    }
+
+    /**
+     * Takes money for bet.
+     *
+     * @param amount bet
+     * @return false, if balance is less than amount - then balance isn't changed
+     */
+    public boolean debit(int amount) {
+        synchronized (this) {
+            if (amount > balance) return false;
+            balance -= amount;
+            version++;
+        }
+        changed();
+        return true;
+    }
+
+    /**
+     * Gives money to player, e.g. returns bet together with win.
+     *
+     * @param amount money, which player gets
+     */
+    public void credit(int amount) {
+        synchronized (this) {
+            balance += amount;
+            version++;
+        }
+        changed();
+    }
+
+    void changed() {
+        // account is queued once until wallet writes it, however many times it was changed
+        if (wallet != null && queued.compareAndSet(false, true)) wallet.changed(this);
+    }
+
+    /**
+     * Marks account as written, so next change queues it again. Must be called before account's state is read.
+     */
+    void dequeued() {
+        queued.set(false);
+    }
+
+    /**
+     * Writes account's record body: id length, id, balance and version.
+     */
+    synchronized void encode(ByteBuffer out) {
+        byte[] id = playerId.getBytes(StandardCharsets.UTF_8);
+        out.putShort((short) id.length);
+        out.put(id);
+        out.putInt(balance);
+        out.putLong(version);
+    }
+
+    synchronized long getVersion() {
+        return version;
+    }
+
+    synchronized void restore(int balance, long version) {
+        this.balance = balance;
+        this.version = version;
+    }
+}
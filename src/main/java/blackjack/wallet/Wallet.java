@@ -0,0 +1,288 @@
+package blackjack.wallet;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Players' accounts, stored in local directory. All accounts are kept in memory, so balance is read and changed
+ * without disk access; changed account is queued and background thread writes it later (write-behind).
+ * Background thread commits queued accounts in groups: once per commit interval it appends all of them to log
+ * and forces log to disk once for whole group. Account, which was changed several times between commits,
+ * is written once with its last balance.
+ * <p>
+ * Log keeps records with account's balance and version, each record has checksum. On start wallet reads
+ * snapshot and log, newest version of each account wins and incomplete record at the end of log
+ * (cut by crash) is skipped. Then all accounts are written to new snapshot and log is emptied; the same
+ * compaction is done, when log grows too big. Changes of last commit interval could be lost by crash.
+ * Problems of recovery and writing are reported to {@link WalletLog}.
+ * @author yevhen bilous
+ */
+public class Wallet implements Runnable, Closeable {
+
+    public static final String SNAPSHOT_FILE = "wallet.snapshot";
+    public static final String LOG_FILE = "wallet.log";
+    public static final long DEFAULT_COMMIT_MILLIS = 10;
+    public static final long DEFAULT_COMPACT_BYTES = 64L << 20;
+    public static final int MAX_ID_LENGTH = 64;
+
+    // length, id length, id, balance, version, checksum
+    private static final int MAX_RECORD_SIZE = 4 + 2 + MAX_ID_LENGTH * 4 + 4 + 8 + 4;
+
+    private final File directory;
+    private final long commitNanos;
+    private final long compactBytes;
+    private final WalletLog walletLog;
+    private final ConcurrentHashMap<String, Account> accounts = new ConcurrentHashMap<String, Account>();
+    private final Queue<Account> changed = new ConcurrentLinkedQueue<Account>();
+    // used only by background thread
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final CRC32 checksum = new CRC32();
+    private final RandomAccessFile logFile;
+    private final FileChannel log;
+    private volatile boolean running = true;
+    private volatile long commits = 0;
+    private final Thread writerThread;
+
+    /**
+     * Recovers accounts and starts background thread.
+     *
+     * @param directory     directory of wallet's files
+     * @param commitMillis  interval between commits
+     * @param compactBytes  size of log, after which log is compacted into snapshot
+     * @param walletLog     receives problems of wallet
+     * @throws IOException if files can't be read or written
+     */
+    public Wallet(File directory, long commitMillis, long compactBytes, WalletLog walletLog) throws IOException {
+        this.directory = directory;
+        this.walletLog = walletLog;
+        this.commitNanos = TimeUnit.MILLISECONDS.toNanos(commitMillis);
+        this.compactBytes = compactBytes;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create wallet directory " + directory);
+        }
+        File snapshot = new File(directory, SNAPSHOT_FILE);
+        if (snapshot.exists()) read(snapshot);
+        logFile = new RandomAccessFile(new File(directory, LOG_FILE), "rw");
+        log = logFile.getChannel();
+        try {
+            long validLength = read(new File(directory, LOG_FILE));
+            if (validLength < log.size()) {
+                walletLog.warn("wallet log is cut after last complete record", validLength + " of " + log.size()
+                        + " bytes are recovered");
+            }
+            compact();
+        } catch (IOException e) {
+            logFile.close();
+            throw e;
+        }
+        writerThread = new Thread(this, "wallet-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    public Wallet(File directory, WalletLog walletLog) throws IOException {
+        this(directory, DEFAULT_COMMIT_MILLIS, DEFAULT_COMPACT_BYTES, walletLog);
+    }
+
+    /**
+     * Returns player's account, or opens new one. Never touches disk: new account is written by background thread.
+     *
+     * @param playerId       player's id, not longer than {@link Wallet#MAX_ID_LENGTH} characters
+     * @param initialBalance balance of new account
+     * @return player's account, the same for all connections of player
+     */
+    public Account open(String playerId, int initialBalance) {
+        if (playerId.isEmpty() || playerId.length() > MAX_ID_LENGTH) {
+            throw new IllegalArgumentException("Player id must have 1-" + MAX_ID_LENGTH + " characters");
+        }
+        Account account = accounts.get(playerId);
+        if (account != null) return account;
+        account = new Account(playerId, this, initialBalance, 0);
+        Account existing = accounts.putIfAbsent(playerId, account);
+        if (existing != null) return existing;
+        account.changed();
+        return account;
+    }
+
+    /**
+     * @return amount of accounts
+     */
+    public int size() {
+        return accounts.size();
+    }
+
+    /**
+     * @return amount of group commits since start
+     */
+    public long getCommits() {
+        return commits;
+    }
+
+    void changed(Account account) {
+        changed.offer(account);
+    }
+
+    /**
+     * Commits changed accounts once per commit interval until closed.
+     */
+    public void run() {
+        try {
+            while (running) {
+                LockSupport.parkNanos(commitNanos);
+                commit();
+                if (log.size() > compactBytes) compact();
+            }
+            commit();
+        } catch (IOException e) {
+            walletLog.error("wallet is not written anymore", e);
+        }
+    }
+
+    /**
+     * Commits changed accounts and stops background thread.
+     */
+    public void close() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            logFile.close();
+        } catch (IOException e) {
+            walletLog.warn("unable to close wallet log", e);
+        }
+    }
+
+    public String toString() {
+        return "Wallet " + directory + ": accounts " + size() + ", commits " + commits;
+    }
+
+    /**
+     * Appends all queued accounts to log and forces it to disk once.
+     */
+    private void commit() throws IOException {
+        if (changed.isEmpty()) return;
+        buffer.clear();
+        Account account;
+        while ((account = changed.poll()) != null) {
+            // account is dequeued before it's read, so its next change queues it again
+            account.dequeued();
+            if (buffer.remaining() < MAX_RECORD_SIZE) writeBuffer(log);
+            putRecord(account);
+        }
+        writeBuffer(log);
+        log.force(false);
+        commits++;
+    }
+
+    /**
+     * Writes all accounts to new snapshot, which replaces old one at once, and empties log.
+     * Accounts could be changed meanwhile: snapshot could have newer balance than log, and log records,
+     * written after compaction, have the same or newer version.
+     */
+    private void compact() throws IOException {
+        File temporary = new File(directory, SNAPSHOT_FILE + ".tmp");
+        RandomAccessFile file = new RandomAccessFile(temporary, "rw");
+        try {
+            FileChannel channel = file.getChannel();
+            channel.truncate(0);
+            buffer.clear();
+            for (Account account : accounts.values()) {
+                if (buffer.remaining() < MAX_RECORD_SIZE) writeBuffer(channel);
+                putRecord(account);
+            }
+            writeBuffer(channel);
+            channel.force(false);
+        } finally {
+            file.close();
+        }
+        Files.move(temporary.toPath(), new File(directory, SNAPSHOT_FILE).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.truncate(0);
+        log.position(0);
+        log.force(false);
+    }
+
+    private void putRecord(Account account) {
+        int start = buffer.position();
+        buffer.putInt(0);
+        account.encode(buffer);
+        int end = buffer.position();
+        buffer.putInt(start, end - start - 4);
+        checksum.reset();
+        ByteBuffer body = buffer.duplicate();
+        body.position(start + 4);
+        body.limit(end);
+        checksum.update(body);
+        buffer.putInt((int) checksum.getValue());
+    }
+
+    private void writeBuffer(FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads records of file into accounts, keeping newest version of each account.
+     *
+     * @return length of file's part, which has only complete and valid records
+     */
+    private long read(File source) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(source, "r");
+        try {
+            MappedByteBuffer data = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            CRC32 crc = new CRC32();
+            while (data.remaining() >= 4) {
+                int start = data.position();
+                int length = data.getInt();
+                if (length < 2 + 4 + 8 || length > MAX_RECORD_SIZE || data.remaining() < length + 4) {
+                    return start;
+                }
+                ByteBuffer body = data.slice();
+                body.limit(length);
+                crc.reset();
+                crc.update(body);
+                if (data.getInt(start + 4 + length) != (int) crc.getValue()) return start;
+                byte[] id = new byte[data.getShort() & 0xFFFF];
+                if (id.length != length - 2 - 4 - 8) return start;
+                data.get(id);
+                int balance = data.getInt();
+                long version = data.getLong();
+                data.getInt();
+                restore(new String(id, StandardCharsets.UTF_8), balance, version);
+            }
+            return data.position();
+        } finally {
+            file.close();
+        }
+    }
+
+    private void restore(String playerId, int balance, long version) {
+        Account account = accounts.get(playerId);
+        if (account == null) {
+            accounts.put(playerId, new Account(playerId, this, balance, version));
+        } else if (version >= account.getVersion()) {
+            account.restore(balance, version);
+        }
+    }
+}
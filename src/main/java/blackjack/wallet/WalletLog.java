@@ -0,0 +1,26 @@
+package blackjack.wallet;
+
+/**
+ * Receives problems, which {@link Wallet} meets while it recovers and writes accounts, so wallet could report
+ * them to log of its owner. Methods are called by thread, which opens or closes wallet, or by wallet's
+ * background thread.
+ * @author yevhen bilous
+ */
+public interface WalletLog {
+
+    /**
+     * Reports problem, after which wallet still works.
+     *
+     * @param event  description of problem
+     * @param detail details, e.g. exception
+     */
+    void warn(String event, Object detail);
+
+    /**
+     * Reports problem, after which accounts aren't written anymore.
+     *
+     * @param event  description of problem
+     * @param detail details, e.g. exception
+     */
+    void error(String event, Object detail);
+}
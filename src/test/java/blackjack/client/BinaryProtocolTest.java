@@ -0,0 +1,44 @@
+package blackjack.client;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks reading of client's frames: text is read back as it was written, malformed frame is rejected
+ * by {@link IllegalArgumentException}, which connections expect.
+ * @author yevhen bilous
+ */
+public class BinaryProtocolTest {
+
+    @Test
+    public void readsClientText() {
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryProtocol.MAX_FRAME_SIZE);
+        BinaryProtocol.putClientText(buffer, "10");
+        BinaryProtocol.putClientText(buffer, "");
+        buffer.flip();
+        assertEquals("10", BinaryProtocol.readClientText(buffer));
+        assertEquals("", BinaryProtocol.readClientText(buffer));
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsFrameWithoutOpcode() {
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryProtocol.MAX_FRAME_SIZE);
+        buffer.putShort((short) 0);
+        BinaryProtocol.putClientText(buffer, "10");
+        buffer.flip();
+        BinaryProtocol.readClientText(buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownOpcode() {
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryProtocol.MAX_FRAME_SIZE);
+        buffer.putShort((short) 1);
+        buffer.put((byte) 0x7F);
+        buffer.flip();
+        BinaryProtocol.readClientText(buffer);
+    }
+}
@@ -0,0 +1,114 @@
+package blackjack.journal;
+
+import blackjack.cards.ArrayShoe;
+import blackjack.cards.Card;
+import blackjack.cards.GameResult;
+import blackjack.cards.Hand;
+import blackjack.cards.PlayerDecision;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks, that replayer accepts rounds, which were played by rules, and reports rounds, which differ from them.
+ * @author yevhen bilous
+ */
+public class RoundReplayerTest {
+
+    private static final long SEED = 42;
+
+    private final RoundReplayer replayer = new RoundReplayer();
+
+    @Test
+    public void acceptsRoundAbandonedBeforeDealing() {
+        // one player didn't bet in time, other one bet and left
+        RecordedRound round = start();
+        round.add(record(RecordType.SIT_OUT, 1, 0, 0));
+        round.add(record(RecordType.BET, 2, 0, 10));
+        round.add(record(RecordType.LEAVE, 2, 0, 0));
+        round.add(record(RecordType.ROUND_END, 0, 0, 1));
+        assertNull(replayer.replay(round));
+    }
+
+    @Test
+    public void reportsUndealtRoundWithCards() {
+        RecordedRound round = start();
+        round.add(record(RecordType.BET, 1, 0, 10));
+        round.add(record(RecordType.CARD, 1, Card.TEN.ordinal(), 0));
+        round.add(record(RecordType.ROUND_END, 0, 0, 1));
+        assertNotNull(replayer.replay(round));
+    }
+
+    @Test
+    public void reportsUndealtRoundWhichWasNotAbandoned() {
+        RecordedRound round = start();
+        round.add(record(RecordType.BET, 1, 0, 10));
+        round.add(record(RecordType.ROUND_END, 0, 0, 0));
+        assertNotNull(replayer.replay(round));
+    }
+
+    @Test
+    public void acceptsPlayedRound() {
+        assertNull(replayer.replay(playedRound(false)));
+    }
+
+    @Test
+    public void reportsChangedCard() {
+        String mismatch = replayer.replay(playedRound(true));
+        assertNotNull(mismatch);
+        assertEquals("Card 1", mismatch.substring(0, 6));
+    }
+
+    /**
+     * Plays round with one box, which stands, from shoe with known seed, and records it.
+     *
+     * @param changeFirstCard true, if dealer's first card must be recorded wrong
+     */
+    private static RecordedRound playedRound(boolean changeFirstCard) {
+        ArrayShoe shoe = new ArrayShoe(1, false);
+        shoe.restore(SEED, 0);
+        RecordedRound round = start();
+        round.add(record(RecordType.BET, 1, 0, 10));
+        JournalRecord shoeRecord = record(RecordType.SHOE, 0, 1, 0);
+        shoeRecord.value = SEED;
+        round.add(shoeRecord);
+        Hand dealerHand = new Hand();
+        Hand playerHand = new Hand();
+        Card first = shoe.retrieveUpperCard();
+        dealerHand.receiveCard(first);
+        Card recorded = changeFirstCard ? Card.values()[(first.ordinal() + 1) % Card.values().length] : first;
+        round.add(record(RecordType.CARD, 0, recorded.ordinal(), 0));
+        for (int count = 0; count < 2; count++) {
+            Card card = shoe.retrieveUpperCard();
+            playerHand.receiveCard(card);
+            round.add(record(RecordType.CARD, 1, card.ordinal(), 0));
+        }
+        round.add(record(RecordType.DECISION, 1, PlayerDecision.STAND.ordinal(), 0));
+        while (!dealerHand.reachesDealerHit()) {
+            Card card = shoe.retrieveUpperCard();
+            dealerHand.receiveCard(card);
+            round.add(record(RecordType.CARD, 0, card.ordinal(), 0));
+        }
+        GameResult result = playerHand.isBlackjack() ? GameResult.PLAYER_BLACKJACK
+                : GameResult.resolve(playerHand, dealerHand);
+        round.add(record(RecordType.SETTLEMENT, 1, result.ordinal(), result.getNet(10)));
+        round.add(record(RecordType.ROUND_END, 0, 0, 0));
+        return round;
+    }
+
+    private static RecordedRound start() {
+        return new RecordedRound(record(RecordType.ROUND_START, 0, 0, 1));
+    }
+
+    private static JournalRecord record(RecordType type, int box, int code, int amount) {
+        JournalRecord record = new JournalRecord();
+        record.type = type;
+        record.box = box;
+        record.code = code;
+        record.amount = amount;
+        record.round = 1;
+        return record;
+    }
+}
@@ -0,0 +1,154 @@
+package blackjack.wallet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks, that wallet recovers players' money after restart and after crash, which cut or damaged
+ * last record of log.
+ * @author yevhen bilous
+ */
+public class WalletTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // problems, reported by wallets of test
+    private final List<String> problems = Collections.synchronizedList(new ArrayList<String>());
+    private final WalletLog walletLog = new WalletLog() {
+        public void warn(String event, Object detail) {
+            problems.add(event);
+        }
+
+        public void error(String event, Object detail) {
+            problems.add(event);
+        }
+    };
+
+    @Test
+    public void keepsBalancesAfterRestart() throws IOException {
+        File directory = folder.getRoot();
+        Wallet wallet = open(directory, Wallet.DEFAULT_COMPACT_BYTES);
+        wallet.open("alice", 100).debit(30);
+        wallet.open("bob", 50).credit(25);
+        wallet.close();
+
+        wallet = open(directory, Wallet.DEFAULT_COMPACT_BYTES);
+        assertEquals(2, wallet.size());
+        assertEquals(70, wallet.open("alice", 0).getBalance());
+        assertEquals(75, wallet.open("bob", 0).getBalance());
+        wallet.close();
+        assertTrue(problems.isEmpty());
+    }
+
+    @Test
+    public void skipsRecordCutByCrash() throws IOException {
+        File directory = prepareSnapshot();
+        // alice's and bob's changes are committed to log one after another
+        Wallet wallet = open(directory, Wallet.DEFAULT_COMPACT_BYTES);
+        wallet.open("alice", 0).debit(30);
+        wallet.open("bob", 0).credit(25);
+        wallet.close();
+
+        File log = new File(directory, Wallet.LOG_FILE);
+        truncate(log, log.length() - 5);
+
+        wallet = open(directory, Wallet.DEFAULT_COMPACT_BYTES);
+        assertEquals(70, wallet.open("alice", 0).getBalance());
+        // bob's last record is incomplete, so his balance is taken from snapshot
+        assertEquals(50, wallet.open("bob", 0).getBalance());
+        wallet.close();
+        assertEquals(1, problems.size());
+        // recovered state was compacted, so it survives next restart as well
+        assertEquals(0, log.length());
+        wallet = open(directory, Wallet.DEFAULT_COMPACT_BYTES);
+        assertEquals(70, wallet.open("alice", 0).getBalance());
+        assertEquals(50, wallet.open("bob", 0).getBalance());
+        wallet.close();
+    }
+
+    @Test
+    public void skipsRecordWithWrongChecksum() throws IOException {
+        File directory = prepareSnapshot();
+        Wallet wallet = open(directory, Wallet.DEFAULT_COMPACT_BYTES);
+        wallet.open("alice", 0).debit(30);
+        wallet.open("bob", 0).credit(25);
+        wallet.close();
+
+        // balance of bob's record is damaged, its length is still right
+        File log = new File(directory, Wallet.LOG_FILE);
+        RandomAccessFile file = new RandomAccessFile(log, "rw");
+        try {
+            long position = file.length() - 4 - 8 - 4;
+            file.seek(position);
+            int balance = file.readInt();
+            file.seek(position);
+            file.writeInt(balance + 1000);
+        } finally {
+            file.close();
+        }
+
+        wallet = open(directory, Wallet.DEFAULT_COMPACT_BYTES);
+        assertEquals(70, wallet.open("alice", 0).getBalance());
+        assertEquals(50, wallet.open("bob", 0).getBalance());
+        wallet.close();
+    }
+
+    @Test
+    public void keepsNewestBalanceWhenLogIsCompacted() throws IOException, InterruptedException {
+        File directory = folder.getRoot();
+        // log is compacted after each commit
+        Wallet wallet = open(directory, 1);
+        Account alice = wallet.open("alice", 1000);
+        for (int round = 0; round < 200; round++) {
+            alice.debit(3);
+            if (round % 20 == 0) Thread.sleep(2);
+        }
+        alice.credit(7);
+        assertTrue(wallet.getCommits() > 0);
+        wallet.close();
+
+        wallet = open(directory, Wallet.DEFAULT_COMPACT_BYTES);
+        assertEquals(1000 - 200 * 3 + 7, wallet.open("alice", 0).getBalance());
+        wallet.close();
+    }
+
+    /**
+     * @return directory, where snapshot has alice with 100 and bob with 50, and log is empty
+     */
+    private File prepareSnapshot() throws IOException {
+        File directory = folder.getRoot();
+        Wallet wallet = open(directory, Wallet.DEFAULT_COMPACT_BYTES);
+        wallet.open("alice", 100);
+        wallet.open("bob", 50);
+        wallet.close();
+        // reopening compacts log into snapshot
+        open(directory, Wallet.DEFAULT_COMPACT_BYTES).close();
+        assertEquals(0, new File(directory, Wallet.LOG_FILE).length());
+        return directory;
+    }
+
+    private Wallet open(File directory, long compactBytes) throws IOException {
+        return new Wallet(directory, 1, compactBytes, walletLog);
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(length);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}